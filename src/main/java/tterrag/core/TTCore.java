@@ -2,6 +2,7 @@ package tterrag.core;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.SneakyThrows;
 import net.minecraft.command.CommandHandler;
@@ -18,23 +19,29 @@ import tterrag.core.common.Handlers;
 import tterrag.core.common.Lang;
 import tterrag.core.common.OreDict;
 import tterrag.core.common.command.CommandReloadConfigs;
+import tterrag.core.common.command.CommandSchedulerStats;
 import tterrag.core.common.command.CommandScoreboardInfo;
 import tterrag.core.common.compat.CompatabilityRegistry;
 import tterrag.core.common.config.ConfigHandler;
 import tterrag.core.common.enchant.EnchantAutoSmelt;
 import tterrag.core.common.enchant.EnchantXPBoost;
+import tterrag.core.common.handlers.RightClickCropHandler.PlantInfo;
 import tterrag.core.common.imc.IMCRegistry;
+import tterrag.core.common.util.StartupProfiler;
+import tterrag.core.common.util.StartupTaskGraph;
 import tterrag.core.common.util.TTFileUtils;
 import tterrag.core.common.util.TextureErrorRemover;
 
 import com.google.common.collect.Lists;
 
+import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.Mod;
 import cpw.mods.fml.common.Mod.EventHandler;
 import cpw.mods.fml.common.Mod.Instance;
 import cpw.mods.fml.common.SidedProxy;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLInterModComms.IMCEvent;
+import cpw.mods.fml.common.event.FMLLoadCompleteEvent;
 import cpw.mods.fml.common.event.FMLPostInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
 import cpw.mods.fml.common.event.FMLServerStartingEvent;
@@ -86,40 +93,122 @@ public class TTCore implements IModTT
     }
 
     @EventHandler
-    public void init(FMLInitializationEvent event)
+    public void init(final FMLInitializationEvent event)
     {
-        for (IConfigHandler c : configs)
+        StartupTaskGraph graph = new StartupTaskGraph(NAME + " init");
+        graph.addAsyncTask("handlerDiscovery", new Runnable()
         {
-            c.initHook();
-        }
-
-        Handlers.register();
-        CompatabilityRegistry.INSTANCE.handle(event);
-        ClientCommandHandler.instance.registerCommand(CommandReloadConfigs.CLIENT);
-        if (event.getSide().isServer())
+            @Override
+            public void run()
+            {
+                Handlers.discover(event.getSide());
+            }
+        });
+        graph.addTask("configInitHooks", new Runnable()
         {
-            ((CommandHandler) MinecraftServer.getServer().getCommandManager()).registerCommand(CommandReloadConfigs.SERVER);
-        }
-
-        IMCRegistry.INSTANCE.init();
+            @Override
+            public void run()
+            {
+                for (IConfigHandler c : configs)
+                {
+                    c.initHook();
+                }
+            }
+        });
+        graph.addTask("handlers", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Handlers.register();
+            }
+        }, "handlerDiscovery", "configInitHooks");
+        graph.addTask("compat", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                CompatabilityRegistry.INSTANCE.handle(event);
+            }
+        }, "handlers");
+        graph.addTask("commands", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ClientCommandHandler.instance.registerCommand(CommandReloadConfigs.CLIENT);
+                if (event.getSide().isServer())
+                {
+                    ((CommandHandler) MinecraftServer.getServer().getCommandManager()).registerCommand(CommandReloadConfigs.SERVER);
+                }
+            }
+        });
+        graph.addTask("imc", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                IMCRegistry.INSTANCE.init();
+            }
+        });
+        graph.run();
     }
 
     @EventHandler
-    public void postInit(FMLPostInitializationEvent event)
+    public void postInit(final FMLPostInitializationEvent event)
     {
-        for (IConfigHandler c : configs)
+        final AtomicReference<List<PlantInfo>> crops = new AtomicReference<List<PlantInfo>>();
+
+        StartupTaskGraph graph = new StartupTaskGraph(NAME + " postInit");
+        graph.addAsyncTask("cropJson", new Runnable()
         {
-            c.postInitHook();
-        }
+            @Override
+            public void run()
+            {
+                crops.set(ConfigHandler.instance().readRightClickCrops());
+            }
+        });
+        graph.addTask("configPostInitHooks", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (IConfigHandler c : configs)
+                {
+                    c.postInitHook();
+                }
+            }
+        });
+        graph.addTask("compat", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                CompatabilityRegistry.INSTANCE.handle(event);
+            }
+        }, "configPostInitHooks");
+        graph.addTask("crops", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ConfigHandler.instance().registerRightClickCrops(crops.get());
+            }
+        }, "cropJson", "compat");
+        graph.run();
+    }
 
-        CompatabilityRegistry.INSTANCE.handle(event);
-        ConfigHandler.instance().loadRightClickCrops();
+    @EventHandler
+    public void onLoadComplete(FMLLoadCompleteEvent event)
+    {
+        StartupProfiler.writeReport(new File(Loader.instance().getConfigDir().getParentFile(), "logs"));
     }
 
     @EventHandler
     public void onServerStarting(FMLServerStartingEvent event)
     {
         event.registerServerCommand(new CommandScoreboardInfo());
+        event.registerServerCommand(new CommandSchedulerStats());
     }
 
     @EventHandler
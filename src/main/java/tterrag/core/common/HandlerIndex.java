@@ -0,0 +1,162 @@
+package tterrag.core.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import tterrag.core.TTCore;
+import tterrag.core.common.json.JsonUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonParseException;
+
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.common.ModContainer;
+
+/**
+ * An on-disk list of the {@link Handlers.Handler} classes found by the last scan, so that later
+ * startups can skip scanning the classpath.
+ * <p>
+ * The index is keyed on the searched packages, the side, and the path, size and modification date
+ * of every mod's source, so it is thrown away whenever a mod is added, removed or updated. Changes
+ * inside a folder can't be seen that way, so the index is not used if any mod is loaded from one.
+ */
+class HandlerIndex
+{
+    private static class Data
+    {
+        private String key;
+        /**
+         * Everything the key was computed from, so that the reason for a miss can be logged.
+         */
+        private List<String> inputs;
+        private List<String> handlers;
+    }
+
+    private final File file;
+    private final List<String> inputs = new ArrayList<String>();
+    private final String key;
+    private boolean usable = true;
+
+    HandlerIndex(File file, Collection<String> packages)
+    {
+        this.file = file;
+        this.key = computeKey(packages);
+    }
+
+    /**
+     * @return False if a mod is loaded from a folder, in which case the index must not be used.
+     */
+    boolean isUsable()
+    {
+        return usable;
+    }
+
+    /**
+     * @return The cached handler class names, or null if there is no index or it is out of date.
+     */
+    List<String> read()
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        try
+        {
+            Data data = JsonUtils.gson.fromJson(FileUtils.readFileToString(file, Charsets.UTF_8.name()), Data.class);
+            if (data != null && key.equals(data.key) && data.handlers != null)
+            {
+                return data.handlers;
+            }
+            logMiss(data);
+        }
+        catch (IOException e)
+        {
+            TTCore.logger.warn("[Handlers] Could not read handler index, rescanning.", e);
+        }
+        catch (JsonParseException e)
+        {
+            TTCore.logger.warn("[Handlers] Handler index is corrupt, rescanning.", e);
+        }
+        return null;
+    }
+
+    void write(List<String> handlers)
+    {
+        Data data = new Data();
+        data.key = key;
+        data.inputs = inputs;
+        data.handlers = handlers;
+
+        try
+        {
+            FileUtils.writeStringToFile(file, JsonUtils.gson.toJson(data), Charsets.UTF_8.name());
+        }
+        catch (IOException e)
+        {
+            TTCore.logger.warn("[Handlers] Could not write handler index.", e);
+        }
+    }
+
+    /**
+     * Logs which inputs of the key changed since the index was written.
+     */
+    private void logMiss(Data data)
+    {
+        if (data == null || data.inputs == null)
+        {
+            TTCore.logger.info("[Handlers] Handler index is from an older version, rescanning.");
+            return;
+        }
+
+        List<String> removed = new ArrayList<String>(data.inputs);
+        removed.removeAll(inputs);
+        List<String> added = new ArrayList<String>(inputs);
+        added.removeAll(data.inputs);
+        TTCore.logger.info("[Handlers] Handler index is out of date, rescanning. Was: " + removed + ", now: " + added);
+    }
+
+    private String computeKey(Collection<String> packages)
+    {
+        inputs.add("version " + TTCore.VERSION);
+        inputs.add("side " + FMLCommonHandler.instance().getSide());
+
+        List<String> sorted = new ArrayList<String>(packages);
+        Collections.sort(sorted);
+        for (String s : sorted)
+        {
+            inputs.add("package " + s);
+        }
+
+        for (ModContainer mod : Loader.instance().getActiveModList())
+        {
+            String input = "mod " + mod.getModId() + " " + mod.getVersion();
+            File source = mod.getSource();
+            if (source != null)
+            {
+                if (source.isDirectory())
+                {
+                    usable = false;
+                }
+                input += " " + source.getAbsolutePath() + " " + source.length() + " " + source.lastModified();
+            }
+            inputs.add(input);
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        for (String input : inputs)
+        {
+            hasher.putString(input, Charsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+}
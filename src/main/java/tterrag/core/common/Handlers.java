@@ -1,27 +1,43 @@
 package tterrag.core.common;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
+import java.io.InputStream;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import net.minecraftforge.common.MinecraftForge;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import tterrag.core.IModTT;
 import tterrag.core.TTCore;
 import tterrag.core.common.Handlers.Handler.HandlerType;
 import tterrag.core.common.Handlers.Handler.Inst;
+import tterrag.core.common.transform.TTCorePlugin;
+import tterrag.core.common.util.StartupProfiler;
 
 import com.google.common.reflect.ClassPath;
 import com.google.common.reflect.ClassPath.ClassInfo;
@@ -30,6 +46,7 @@ import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.LoaderState;
 import cpw.mods.fml.common.ModContainer;
+import cpw.mods.fml.relauncher.Side;
 
 import static tterrag.core.common.Handlers.Handler.Inst.*;
 
@@ -103,7 +120,12 @@ public class Handlers
         Inst getInstFrom() default AUTO;
     }
 
-    private static Set<String> packageSet = new HashSet<String>();
+    private static final String HANDLER_DESC = Type.getDescriptor(Handler.class);
+
+    /**
+     * The packages to search, mapped to the modid of the mod which added them.
+     */
+    private static Map<String, String> packages = new HashMap<String, String>();
 
     public static void findPackages()
     {
@@ -111,7 +133,7 @@ public class Handlers
         {
             if (mod.getMod() instanceof IModTT)
             {
-                addPackage(getEnclosingPackage(mod.getMod()));
+                addPackage(getEnclosingPackage(mod.getMod()), mod.getModId());
             }
         }
     }
@@ -143,6 +165,11 @@ public class Handlers
      * @param packageName
      */
     public static void addPackage(String packageName)
+    {
+        addPackage(packageName, StartupProfiler.getActiveMod());
+    }
+
+    private static void addPackage(String packageName, String owner)
     {
         if (Loader.instance().hasReachedState(LoaderState.INITIALIZATION))
         {
@@ -150,10 +177,45 @@ public class Handlers
         }
 
         TTCore.logger.info("Adding package " + packageName + " to handler search.");
-        packageSet.add(packageName);
+        packages.put(packageName, owner);
     }
 
     private static boolean registered = false;
+    private static List<String> handlerNames;
+
+    /**
+     * For internal use only. Do not call.
+     * <p>
+     * Finds the names of all handler classes, from the cached index if possible. Does not load any
+     * classes, so this may be run off the main thread.
+     * 
+     * @param side
+     *            The side the game is running on. Must be passed in, as the effective side can't be
+     *            read off the main thread.
+     */
+    public static void discover(Side side)
+    {
+        // kept out of config/, which modpacks ship, as the index is only valid for this install
+        File cacheFolder = new File(Loader.instance().getConfigDir().getParentFile(), TTCore.MODID + "-cache");
+        HandlerIndex index = new HandlerIndex(new File(cacheFolder, "handlerIndex.json"), packages.keySet());
+        // dev environments have their classes in folders, which the index can't see changes to
+        boolean useIndex = TTCorePlugin.runtimeDeobfEnabled && index.isUsable();
+
+        List<String> handlers = useIndex ? index.read() : null;
+        if (handlers == null)
+        {
+            handlers = findHandlers(side.isClient());
+            if (useIndex)
+            {
+                index.write(handlers);
+            }
+        }
+        else
+        {
+            TTCore.logger.info("[Handlers] Using cached handler index, skipping classpath scan.");
+        }
+        handlerNames = handlers;
+    }
 
     /**
      * For internal use only. Do not call. Callers will be sacked.
@@ -165,7 +227,40 @@ public class Handlers
             throw new IllegalStateException("I warned you!");
         }
 
-        ClassPath classpath;
+        if (handlerNames == null)
+        {
+            discover(FMLCommonHandler.instance().getSide());
+        }
+
+        for (String name : handlerNames)
+        {
+            long start = StartupProfiler.start();
+            try
+            {
+                Class<?> c = TTCore.class.getClassLoader().loadClass(name);
+                registerHandler(c, c.getAnnotation(Handler.class));
+            }
+            catch (Throwable t)
+            {
+                TTCore.logger.error(String.format("[Handlers] %s threw an error on load, skipping...", name));
+                t.printStackTrace();
+            }
+            StartupProfiler.end(start, StartupProfiler.HANDLERS, StartupProfiler.getOwner(name), "register " + name);
+        }
+
+        registered = true;
+    }
+
+    /**
+     * Scans all registered packages for classes annotated with {@link Handler}. Only the class file
+     * bytes are read, no class is loaded or initialized by this. Each package is scanned on its own
+     * thread.
+     * 
+     * @return The names of all handler classes found.
+     */
+    private static List<String> findHandlers(final boolean client)
+    {
+        final ClassPath classpath;
 
         try
         {
@@ -176,39 +271,94 @@ public class Handlers
             throw new RuntimeException(e);
         }
 
-        for (String packageName : packageSet)
-        {
-            Set<ClassInfo> classes = classpath.getTopLevelClassesRecursive(packageName);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(packages.size(), Runtime.getRuntime().availableProcessors())));
+        List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
 
-            for (ClassInfo info : classes)
+        for (final Entry<String, String> e : packages.entrySet())
+        {
+            results.add(executor.submit(new Callable<List<String>>()
             {
-                // if not client handler, or we are on client, continue
-                if (!info.getPackageName().contains("client") || FMLCommonHandler.instance().getEffectiveSide().isClient())
+                @Override
+                public List<String> call()
                 {
-                    try
-                    {
-                        Class<?> c = info.load();
+                    long start = StartupProfiler.start();
+                    List<String> ret = findHandlers(classpath, e.getKey(), client);
+                    StartupProfiler.end(start, StartupProfiler.HANDLERS, e.getValue(), "scan " + e.getKey());
+                    return ret;
+                }
+            }));
+        }
 
-                        Annotation a = c.getAnnotation(Handler.class);
-                        if (a != null)
-                        {
-                            registerHandler(c, (Handler) a);
-                        }
-                    }
-                    catch (Throwable t)
+        List<String> ret = new ArrayList<String>();
+        try
+        {
+            for (Future<List<String>> result : results)
+            {
+                ret.addAll(result.get());
+            }
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Could not scan for handlers", e);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        return ret;
+    }
+
+    private static List<String> findHandlers(ClassPath classpath, String packageName, boolean client)
+    {
+        List<String> ret = new ArrayList<String>();
+        for (ClassInfo info : classpath.getTopLevelClassesRecursive(packageName))
+        {
+            // if not client handler, or we are on client, continue
+            if (!info.getPackageName().contains("client") || client)
+            {
+                InputStream in = null;
+                try
+                {
+                    in = TTCore.class.getClassLoader().getResourceAsStream(info.getResourceName());
+                    if (in != null && hasHandlerAnnotation(IOUtils.toByteArray(in)))
                     {
-                        TTCore.logger.error(String.format("[Handlers] %s threw an error on load, skipping...", info.getName()));
-                        t.printStackTrace();
+                        ret.add(info.getName());
                     }
                 }
-                else
+                catch (Throwable t)
                 {
-                    TTCore.logger.info(String.format("[Handlers] Skipping client class %s, we are on a dedicated server", info.getSimpleName()));
+                    TTCore.logger.error(String.format("[Handlers] %s could not be read, skipping...", info.getName()));
+                    t.printStackTrace();
                 }
+                finally
+                {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+            else
+            {
+                TTCore.logger.info(String.format("[Handlers] Skipping client class %s, we are on a dedicated server", info.getSimpleName()));
             }
         }
+        return ret;
+    }
 
-        registered = true;
+    private static boolean hasHandlerAnnotation(byte[] classBytes)
+    {
+        final boolean[] found = new boolean[1];
+        new ClassReader(classBytes).accept(new ClassVisitor(Opcodes.ASM5)
+        {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+            {
+                if (HANDLER_DESC.equals(desc))
+                {
+                    found[0] = true;
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return found[0];
     }
 
     private static void registerHandler(Class<?> c, Handler handler) throws InstantiationException, IllegalAccessException
@@ -0,0 +1,107 @@
+package tterrag.core.common.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentText;
+
+import org.apache.commons.io.FileUtils;
+
+import tterrag.core.TTCore;
+import tterrag.core.common.util.Scheduler;
+import tterrag.core.common.util.SchedulerMetrics;
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.relauncher.Side;
+
+public class CommandSchedulerStats extends CommandBase
+{
+    private static final int MAX_OWNERS_CHAT = 5;
+
+    @Override
+    public String getCommandName()
+    {
+        return "schedulerstats";
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender p_71518_1_)
+    {
+        return "/schedulerstats [dump|reset]";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 2;
+    }
+
+    @Override
+    public void processCommand(ICommandSender player, String[] args)
+    {
+        Scheduler scheduler = Scheduler.instance();
+
+        if (args.length == 0)
+        {
+            for (String line : report(scheduler, MAX_OWNERS_CHAT))
+            {
+                player.addChatMessage(new ChatComponentText(line));
+            }
+        }
+        else if (args[0].equals("dump"))
+        {
+            File file = new File(Loader.instance().getConfigDir().getParentFile(), "logs/ttCore-scheduler.txt");
+            try
+            {
+                FileUtils.writeLines(file, report(scheduler, -1));
+            }
+            catch (IOException e)
+            {
+                TTCore.logger.error("Could not write scheduler stats to " + file.getAbsolutePath());
+                e.printStackTrace();
+                throw new CommandException("Could not write scheduler stats, see the log for details.");
+            }
+            player.addChatMessage(new ChatComponentText("Scheduler stats written to " + file.getAbsolutePath()));
+        }
+        else if (args[0].equals("reset"))
+        {
+            for (Side side : Side.values())
+            {
+                scheduler.getMetrics(side).reset();
+            }
+            player.addChatMessage(new ChatComponentText("Scheduler stats reset."));
+        }
+        else
+        {
+            throw new WrongUsageException(getCommandUsage(player));
+        }
+    }
+
+    private List<String> report(Scheduler scheduler, int maxOwners)
+    {
+        List<String> lines = new ArrayList<String>();
+        for (Side side : Side.values())
+        {
+            SchedulerMetrics metrics = scheduler.getMetrics(side);
+            lines.add(side + ":");
+            metrics.report(lines, scheduler.getQueueDepth(side), maxOwners);
+        }
+        return lines;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List addTabCompletionOptions(ICommandSender player, String[] args)
+    {
+        if (args.length == 1)
+        {
+            return getListOfStringsMatchingLastWord(args, "dump", "reset");
+        }
+        return null;
+    }
+}
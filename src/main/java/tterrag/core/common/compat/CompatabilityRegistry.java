@@ -13,6 +13,7 @@ import org.apache.commons.lang3.ArrayUtils;
 
 import tterrag.core.TTCore;
 import tterrag.core.common.util.RegisterTime;
+import tterrag.core.common.util.StartupProfiler;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.event.FMLStateEvent;
 
@@ -95,6 +96,7 @@ public class CompatabilityRegistry
 
     private void doLoad(String clazz)
     {
+        long start = StartupProfiler.start();
         try
         {
             TTCore.logger.info("[Compat] Loading compatability class " + clazz);
@@ -115,5 +117,9 @@ public class CompatabilityRegistry
             TTCore.logger.error("[Compat] An unknown error was thrown loading class {}.", clazz);
             e.printStackTrace();
         }
+        finally
+        {
+            StartupProfiler.end(start, StartupProfiler.COMPAT, StartupProfiler.getOwner(clazz), clazz);
+        }
     }
 }
@@ -12,6 +12,7 @@ import net.minecraftforge.common.config.Property;
 import tterrag.core.TTCore;
 import tterrag.core.api.common.config.IConfigHandler;
 import tterrag.core.common.event.ConfigFileChangedEvent;
+import tterrag.core.common.util.StartupProfiler;
 
 import com.google.common.collect.ImmutableList;
 
@@ -120,10 +121,12 @@ public abstract class AbstractConfigHandler implements IConfigHandler
     @Override
     public final void initialize(File cfg)
     {
+        long start = StartupProfiler.start();
         config = new Configuration(cfg);
         init();
         reloadAllConfigs();
         saveConfigFile();
+        StartupProfiler.end(start, StartupProfiler.CONFIG, modid, getClass().getName());
     }
 
     protected void loadConfigFile()
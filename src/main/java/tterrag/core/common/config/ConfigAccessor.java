@@ -0,0 +1,354 @@
+package tterrag.core.common.config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.SneakyThrows;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import tterrag.core.TTCore;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Reads and writes the static config fields of one class by index, without boxing primitives.
+ * <p>
+ * For internal use only. Instances are created once per class by {@link #create(Class, Field[])}.
+ * If every field is public, non-final, and in a public class, a subclass which accesses them
+ * directly is generated. Otherwise the fields are accessed through reflection.
+ */
+public abstract class ConfigAccessor
+{
+    private static final String name = Type.getInternalName(ConfigAccessor.class);
+
+    /**
+     * The loader generated classes are defined in, one for each loader of config classes.
+     */
+    private static final Map<ClassLoader, AccessorLoader> loaders = new HashMap<ClassLoader, AccessorLoader>();
+
+    public int getInt(int field)
+    {
+        throw wrongType(field);
+    }
+
+    public void setInt(int field, int value)
+    {
+        throw wrongType(field);
+    }
+
+    public boolean getBoolean(int field)
+    {
+        throw wrongType(field);
+    }
+
+    public void setBoolean(int field, boolean value)
+    {
+        throw wrongType(field);
+    }
+
+    public double getDouble(int field)
+    {
+        throw wrongType(field);
+    }
+
+    public void setDouble(int field, double value)
+    {
+        throw wrongType(field);
+    }
+
+    /**
+     * For fields of any non-primitive type.
+     */
+    public Object getObject(int field)
+    {
+        throw wrongType(field);
+    }
+
+    public void setObject(int field, Object value)
+    {
+        throw wrongType(field);
+    }
+
+    private IllegalArgumentException wrongType(int field)
+    {
+        return new IllegalArgumentException("Field " + field + " does not exist or has a different type");
+    }
+
+    /**
+     * @param fields
+     *            The static fields to access, in index order.
+     */
+    static ConfigAccessor create(Class<?> owner, Field[] fields)
+    {
+        if (canGenerate(owner, fields))
+        {
+            try
+            {
+                return generate(owner, fields);
+            }
+            catch (LinkageError e)
+            {
+                TTCore.logger.warn("Could not generate config accessor for " + owner.getName() + ", using reflection instead.", e);
+            }
+        }
+        return new Reflective(fields);
+    }
+
+    private static boolean canGenerate(Class<?> owner, Field[] fields)
+    {
+        if (!Modifier.isPublic(owner.getModifiers()) || !isVisibleFrom(getLoader(owner)))
+        {
+            return false;
+        }
+        for (Field f : fields)
+        {
+            int mod = f.getModifiers();
+            if (!Modifier.isPublic(mod) || Modifier.isFinal(mod))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ClassLoader getLoader(Class<?> owner)
+    {
+        return owner.getClassLoader() == null ? ConfigAccessor.class.getClassLoader() : owner.getClassLoader();
+    }
+
+    /**
+     * @return Whether the generated class, which is defined below the given loader, would extend
+     *         this class and not a copy of it from another loader.
+     */
+    private static boolean isVisibleFrom(ClassLoader loader)
+    {
+        try
+        {
+            return Class.forName(ConfigAccessor.class.getName(), false, loader) == ConfigAccessor.class;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    private static class AccessorLoader extends ClassLoader
+    {
+        private AccessorLoader(ClassLoader parent)
+        {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes)
+        {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static synchronized Class<?> define(ClassLoader parent, String name, byte[] bytes)
+    {
+        AccessorLoader loader = loaders.get(parent);
+        if (loader == null)
+        {
+            loader = new AccessorLoader(parent);
+            loaders.put(parent, loader);
+        }
+        return loader.define(name, bytes);
+    }
+
+    @SneakyThrows
+    private static ConfigAccessor generate(Class<?> owner, Field[] fields)
+    {
+        String className = owner.getName() + "$TTCoreConfigAccessor";
+        String internalName = className.replace('.', '/');
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        // no stack map frames before Java 6, so none have to be computed
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, name, null);
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, name, "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        writeAccessors(cw, owner, fields, Type.INT_TYPE, "Int");
+        writeAccessors(cw, owner, fields, Type.BOOLEAN_TYPE, "Boolean");
+        writeAccessors(cw, owner, fields, Type.DOUBLE_TYPE, "Double");
+        writeAccessors(cw, owner, fields, null, "Object");
+        cw.visitEnd();
+
+        Class<?> cls = define(getLoader(owner), className, cw.toByteArray());
+        return (ConfigAccessor) cls.newInstance();
+    }
+
+    /**
+     * Writes the getter and setter for all fields of one type, each a switch on the index which
+     * falls back to the throwing super method.
+     *
+     * @param type
+     *            The primitive type, or null for all other types.
+     */
+    private static void writeAccessors(ClassWriter cw, Class<?> owner, Field[] fields, Type type, String suffix)
+    {
+        List<Integer> indices = new ArrayList<Integer>();
+        for (int i = 0; i < fields.length; i++)
+        {
+            Type fieldType = Type.getType(fields[i].getType());
+            if (type == null ? fieldType.getSort() >= Type.ARRAY : fieldType.equals(type))
+            {
+                indices.add(i);
+            }
+        }
+        if (indices.isEmpty())
+        {
+            return;
+        }
+
+        Type valueType = type == null ? Type.getType(Object.class) : type;
+        String ownerName = Type.getInternalName(owner);
+        int[] keys = new int[indices.size()];
+        Label[] labels = new Label[keys.length];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = indices.get(i);
+            labels[i] = new Label();
+        }
+
+        String getDesc = Type.getMethodDescriptor(valueType, Type.INT_TYPE);
+        MethodVisitor get = cw.visitMethod(ACC_PUBLIC, "get" + suffix, getDesc, null, null);
+        get.visitCode();
+        Label getDefault = new Label();
+        get.visitVarInsn(ILOAD, 1);
+        get.visitLookupSwitchInsn(getDefault, keys, labels);
+        for (int i = 0; i < keys.length; i++)
+        {
+            Field f = fields[keys[i]];
+            get.visitLabel(labels[i]);
+            get.visitFieldInsn(GETSTATIC, ownerName, f.getName(), Type.getDescriptor(f.getType()));
+            get.visitInsn(valueType.getOpcode(IRETURN));
+        }
+        get.visitLabel(getDefault);
+        get.visitVarInsn(ALOAD, 0);
+        get.visitVarInsn(ILOAD, 1);
+        get.visitMethodInsn(INVOKESPECIAL, name, "get" + suffix, getDesc, false);
+        get.visitInsn(valueType.getOpcode(IRETURN));
+        get.visitMaxs(0, 0);
+        get.visitEnd();
+
+        String setDesc = Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE, valueType);
+        MethodVisitor set = cw.visitMethod(ACC_PUBLIC, "set" + suffix, setDesc, null, null);
+        set.visitCode();
+        Label setDefault = new Label();
+        for (int i = 0; i < labels.length; i++)
+        {
+            labels[i] = new Label();
+        }
+        set.visitVarInsn(ILOAD, 1);
+        set.visitLookupSwitchInsn(setDefault, keys, labels);
+        for (int i = 0; i < keys.length; i++)
+        {
+            Field f = fields[keys[i]];
+            set.visitLabel(labels[i]);
+            set.visitVarInsn(valueType.getOpcode(ILOAD), 2);
+            if (type == null)
+            {
+                set.visitTypeInsn(CHECKCAST, Type.getInternalName(f.getType()));
+            }
+            set.visitFieldInsn(PUTSTATIC, ownerName, f.getName(), Type.getDescriptor(f.getType()));
+            set.visitInsn(RETURN);
+        }
+        set.visitLabel(setDefault);
+        set.visitVarInsn(ALOAD, 0);
+        set.visitVarInsn(ILOAD, 1);
+        set.visitVarInsn(valueType.getOpcode(ILOAD), 2);
+        set.visitMethodInsn(INVOKESPECIAL, name, "set" + suffix, setDesc, false);
+        set.visitInsn(RETURN);
+        set.visitMaxs(0, 0);
+        set.visitEnd();
+    }
+
+    /**
+     * Used for classes whose fields can't be accessed from a generated class. The fields are still
+     * only looked up once, and primitives are not boxed.
+     */
+    private static class Reflective extends ConfigAccessor
+    {
+        private final Field[] fields;
+
+        private Reflective(Field[] fields)
+        {
+            this.fields = fields;
+            for (Field f : fields)
+            {
+                f.setAccessible(true);
+            }
+        }
+
+        @Override
+        @SneakyThrows
+        public int getInt(int field)
+        {
+            return fields[field].getInt(null);
+        }
+
+        @Override
+        @SneakyThrows
+        public void setInt(int field, int value)
+        {
+            fields[field].setInt(null, value);
+        }
+
+        @Override
+        @SneakyThrows
+        public boolean getBoolean(int field)
+        {
+            return fields[field].getBoolean(null);
+        }
+
+        @Override
+        @SneakyThrows
+        public void setBoolean(int field, boolean value)
+        {
+            fields[field].setBoolean(null, value);
+        }
+
+        @Override
+        @SneakyThrows
+        public double getDouble(int field)
+        {
+            return fields[field].getDouble(null);
+        }
+
+        @Override
+        @SneakyThrows
+        public void setDouble(int field, double value)
+        {
+            fields[field].setDouble(null, value);
+        }
+
+        @Override
+        @SneakyThrows
+        public Object getObject(int field)
+        {
+            return fields[field].get(null);
+        }
+
+        @Override
+        @SneakyThrows
+        public void setObject(int field, Object value)
+        {
+            fields[field].set(null, value);
+        }
+    }
+}
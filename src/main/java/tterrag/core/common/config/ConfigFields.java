@@ -0,0 +1,132 @@
+package tterrag.core.common.config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import tterrag.core.TTCore;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * The {@link Config} fields of a class, looked up once per class and shared by all
+ * {@link ConfigProcessor}s for it.
+ */
+class ConfigFields
+{
+    enum Kind
+    {
+        INT(Integer.class, int.class),
+        BOOLEAN(Boolean.class, boolean.class),
+        DOUBLE(Double.class, double.class),
+        STRING(String.class, String.class),
+        STRING_ARRAY(String[].class, String[].class),
+        INT_ARRAY(int[].class, int[].class);
+
+        private final Class<?> valueClass, fieldClass;
+
+        private Kind(Class<?> valueClass, Class<?> fieldClass)
+        {
+            this.valueClass = valueClass;
+            this.fieldClass = fieldClass;
+        }
+
+        /**
+         * @return Whether the value can be stored in a field of this kind.
+         */
+        boolean accepts(Object value)
+        {
+            return valueClass.isInstance(value);
+        }
+
+        static Kind of(Class<?> fieldClass)
+        {
+            for (Kind kind : values())
+            {
+                if (kind.fieldClass == fieldClass)
+                {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    static class Entry
+    {
+        /**
+         * The index of the field in the {@link ConfigAccessor}.
+         */
+        final int index;
+        final String name;
+        final Config cfg;
+        final Kind kind;
+
+        private Entry(int index, String name, Config cfg, Kind kind)
+        {
+            this.index = index;
+            this.name = name;
+            this.cfg = cfg;
+            this.kind = kind;
+        }
+    }
+
+    private static final Map<Class<?>, ConfigFields> cache = Maps.newHashMap();
+
+    final Entry[] entries;
+    final ConfigAccessor accessor;
+    private final Map<String, Entry> byName;
+
+    private ConfigFields(Class<?> configs)
+    {
+        List<Field> fields = new ArrayList<Field>();
+        List<Entry> entries = new ArrayList<Entry>();
+        ImmutableMap.Builder<String, Entry> byName = ImmutableMap.builder();
+        for (Field f : configs.getDeclaredFields())
+        {
+            Config cfg = f.getAnnotation(Config.class);
+            if (cfg == null)
+            {
+                continue;
+            }
+
+            Kind kind = Kind.of(f.getType());
+            if (kind == null || !Modifier.isStatic(f.getModifiers()))
+            {
+                TTCore.logger.warn("Ignoring config field " + configs.getName() + "." + f.getName() + ", config fields must be static, and of type int, boolean, double, String, String[] or int[].");
+                continue;
+            }
+
+            Entry entry = new Entry(fields.size(), f.getName(), cfg, kind);
+            fields.add(f);
+            entries.add(entry);
+            byName.put(entry.name, entry);
+        }
+
+        this.entries = entries.toArray(new Entry[entries.size()]);
+        this.byName = byName.build();
+        this.accessor = ConfigAccessor.create(configs, fields.toArray(new Field[fields.size()]));
+    }
+
+    static synchronized ConfigFields get(Class<?> configs)
+    {
+        ConfigFields ret = cache.get(configs);
+        if (ret == null)
+        {
+            ret = new ConfigFields(configs);
+            cache.put(configs, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @return The field with the given name, or null if there is no config field by that name.
+     */
+    Entry get(String name)
+    {
+        return byName.get(name);
+    }
+}
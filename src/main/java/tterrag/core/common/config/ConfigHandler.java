@@ -1,6 +1,7 @@
 package tterrag.core.common.config;
 
 import java.io.File;
+import java.util.List;
 
 import tterrag.core.TTCore;
 import tterrag.core.common.Handlers.Handler;
@@ -26,10 +27,10 @@ public class ConfigHandler extends AbstractConfigHandler implements ITweakConfig
     @Config(section = sectionGeneral, comment = "Show item registry names and other things in debug mode (f3+h)", noSync = true)
     public static boolean extraDebugStuff = true;
 
-    @Config(section = sectionGeneral, comment = "Removes all void fog.\n0 = off\n1 = DEFAULT worldtype only\n2 = all world types", noSync = true)
+    @Config(section = sectionGeneral, comment = "Removes all void fog.\n0 = off\n1 = DEFAULT worldtype only\n2 = all world types\nChanging from or to 0 requires a restart.", noSync = true)
     public static int disableVoidFog = 1;
 
-    @Config(section = sectionGeneral, comment = "The max amount of XP levels an anvil recipe can use.")
+    @Config(section = sectionGeneral, comment = "The max amount of XP levels an anvil recipe can use.\nOn dedicated servers, changing from or to 40 requires a restart.")
     public static int anvilMaxLevel = 40;
 
     @Config(section = sectionGeneral, comment = "The way the game should have been made (Yes this is the fireworks thing).")
@@ -41,6 +42,27 @@ public class ConfigHandler extends AbstractConfigHandler implements ITweakConfig
     @Config(section = sectionGeneral, comment = "0 - Do nothing\n1 - Remove stacktraces, leave 1-line missing texture errors\n2 - Remove all missing texture errors completely. This option is not supported outside dev environments.", noSync = true)
     public static int textureErrorRemover = 0;
 
+    @Config(section = sectionGeneral, comment = "The max time (in microseconds) the scheduler may spend running tasks each tick. Tasks over the budget are deferred to the next tick.\n0 = unlimited", min = 0, noSync = true)
+    public static int schedulerTickBudget = 0;
+
+    @Config(section = sectionGeneral, comment = "The max amount of scheduled tasks that may run each tick. Tasks over the limit are deferred to the next tick.\n0 = unlimited", min = 0, noSync = true)
+    public static int schedulerMaxTasksPerTick = 0;
+
+    @Config(section = sectionGeneral, comment = "Measure the run time of every scheduled task, and attribute it to the class that scheduled it. View the results with /schedulerstats.", noSync = true)
+    public static boolean schedulerProfiling = false;
+
+    @Config(section = sectionGeneral, comment = "Fixes shift clicking items into the furnace. Requires a restart.", noSync = true)
+    public static boolean furnaceShiftClickFix = true;
+
+    @Config(section = sectionGeneral, comment = "Fire ttCore's ItemRarityEvent. Requires a restart.\nOnly disable this if no installed mod uses the event.", noSync = true)
+    public static boolean itemRarityEvent = true;
+
+    @Config(section = sectionGeneral, comment = "Fire ttCore's ItemEnchantabilityEvent. Requires a restart.\nOnly disable this if no installed mod uses the event.", noSync = true)
+    public static boolean itemEnchantabilityEvent = true;
+
+    @Config(section = sectionGeneral, comment = "Fire ttCore's ArrowUpdateEvent. Requires a restart.\nOnly disable this if no installed mod uses the event.", noSync = true)
+    public static boolean arrowUpdateEvent = true;
+
     public static int enchantIDXPBoost = 43;
     public static boolean allowXPBoost = true;
     
@@ -115,10 +137,24 @@ public class ConfigHandler extends AbstractConfigHandler implements ITweakConfig
     }
 
     public void loadRightClickCrops()
+    {
+        registerRightClickCrops(readRightClickCrops());
+    }
+
+    /**
+     * Parses the crop config. Does not touch any registries, so this may be run off the main
+     * thread.
+     */
+    public List<PlantInfo> readRightClickCrops()
     {
         JsonConfigReader<PlantInfo> reader = new JsonConfigReader<PlantInfo>(new ModToken(TTCore.class, TTCore.MODID.toLowerCase() + "/config"),
                 configFolder.getAbsolutePath() + "/cropConfig.json", PlantInfo.class);
-        for (PlantInfo i : reader)
+        return reader.getElements();
+    }
+
+    public void registerRightClickCrops(List<PlantInfo> crops)
+    {
+        for (PlantInfo i : crops)
         {
             i.init();
             RightClickCropHandler.INSTANCE.addCrop(i);
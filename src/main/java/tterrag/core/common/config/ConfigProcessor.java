@@ -1,17 +1,24 @@
 package tterrag.core.common.config;
 
 import java.io.File;
-import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
 import net.minecraftforge.common.config.ConfigCategory;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
+import tterrag.core.TTCore;
 import tterrag.core.common.event.ConfigFileChangedEvent;
 import tterrag.core.common.network.TTPacketHandler;
+import tterrag.core.common.transform.TTCoreMethods;
+import tterrag.core.common.util.Scheduler;
+import tterrag.core.common.util.Scheduler.Priority;
+import tterrag.core.common.util.StartupProfiler;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -20,6 +27,7 @@ import cpw.mods.fml.client.event.ConfigChangedEvent;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.PlayerEvent;
+import cpw.mods.fml.relauncher.Side;
 
 public class ConfigProcessor
 {
@@ -32,10 +40,13 @@ public class ConfigProcessor
     String modid;
 
     private Class<?> configs;
+    private ConfigFields fields;
     private Configuration configFile;
     private IReloadCallback callback;
 
     Map<String, Object> configValues = Maps.newHashMap();
+    private Set<String> syncedKeys = Sets.newHashSet();
+    private volatile ConfigSyncState syncState = new ConfigSyncState(configValues);
 
     private Set<String> sections = Sets.newHashSet();
 
@@ -65,6 +76,7 @@ public class ConfigProcessor
     public ConfigProcessor(Class<?> configs, File configFile, String modid, IReloadCallback callback)
     {
         this.configs = configs;
+        this.fields = ConfigFields.get(configs);
         this.configFile = new Configuration(configFile);
         this.modid = modid;
         this.callback = callback;
@@ -74,91 +86,124 @@ public class ConfigProcessor
 
     public void process(boolean load)
     {
+        long start = StartupProfiler.start();
         if (load)
         {
             configFile.load();
         }
 
-        try
+        boolean fieldsChanged = false;
+        for (ConfigFields.Entry field : fields.entries)
         {
-            boolean fieldsChanged = false;
-            for (Field f : configs.getDeclaredFields())
-            {
-                fieldsChanged |= processField(f);
-            }
-            if (fieldsChanged && callback != null)
-            {
-                callback.callback(this);
-            }
+            fieldsChanged |= processField(field);
         }
-        catch (Exception e)
+        if (fieldsChanged && callback != null)
         {
-            throw new RuntimeException(e);
+            callback.callback(this);
         }
 
         if (configFile.hasChanged())
         {
             configFile.save();
         }
+
+        ConfigSyncState old = syncState;
+        updateSyncState();
+        pushChanges(old);
+        StartupProfiler.end(start, StartupProfiler.CONFIG, modid, configs.getName());
     }
 
     // returns true if the config value changed
-    private boolean processField(Field f) throws Exception
+    private boolean processField(ConfigFields.Entry field)
     {
-        Config cfg = f.getAnnotation(Config.class);
-        if (cfg == null)
+        Config cfg = field.cfg;
+        ConfigAccessor accessor = fields.accessor;
+        int i = field.index;
+
+        // the current value is used as the default
+        Property prop;
+        boolean changed;
+        switch (field.kind)
+        {
+        case INT:
         {
-            return false;
+            int value = accessor.getInt(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            int newValue = prop.getInt();
+            accessor.setInt(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = value != newValue;
+            break;
         }
-        Object value = f.get(null);
-        Object newValue = getConfigValue(cfg, f, value);
-
-        configValues.put(f.getName(), newValue);
-        f.set(null, newValue);
-
-        sections.add(cfg.section());
-
-        return !value.equals(newValue);
-    }
-
-    private Object getConfigValue(Config cfg, Field f, Object defVal)
-    {
-        Property prop = null;
-        Object ret = null;
-        if (defVal instanceof Boolean)
+        case BOOLEAN:
         {
-            prop = configFile.get(cfg.section(), f.getName(), (Boolean) defVal);
-            ret = prop.getBoolean();
+            boolean value = accessor.getBoolean(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            boolean newValue = prop.getBoolean();
+            accessor.setBoolean(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = value != newValue;
+            break;
         }
-        else if (defVal instanceof Integer)
+        case DOUBLE:
         {
-            prop = configFile.get(cfg.section(), f.getName(), (Integer) defVal);
-            ret = prop.getInt();
+            double value = accessor.getDouble(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            double newValue = prop.getDouble();
+            accessor.setDouble(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = value != newValue;
+            break;
         }
-        else if (defVal instanceof Double)
+        case STRING:
         {
-            prop = configFile.get(cfg.section(), f.getName(), (Double) defVal);
-            ret = prop.getDouble();
+            String value = (String) accessor.getObject(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            String newValue = prop.getString();
+            accessor.setObject(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = !Objects.equal(value, newValue);
+            break;
         }
-        else if (defVal instanceof String)
+        case STRING_ARRAY:
         {
-            prop = configFile.get(cfg.section(), f.getName(), (String) defVal);
-            ret = prop.getString();
+            String[] value = (String[]) accessor.getObject(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            String[] newValue = prop.getStringList();
+            accessor.setObject(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = !Arrays.equals(value, newValue);
+            break;
         }
-        else if (defVal instanceof String[])
+        default:
         {
-            prop = configFile.get(cfg.section(), f.getName(), (String[]) defVal);
-            ret = prop.getStringList();
+            int[] value = (int[]) accessor.getObject(i);
+            prop = configFile.get(cfg.section(), field.name, value);
+            int[] newValue = prop.getIntList();
+            accessor.setObject(i, newValue);
+            configValues.put(field.name, newValue);
+            changed = !Arrays.equals(value, newValue);
+            break;
         }
+        }
+
+        boolean intBounds = field.kind == ConfigFields.Kind.INT || field.kind == ConfigFields.Kind.INT_ARRAY;
         if (cfg.min() > Integer.MIN_VALUE)
         {
-            prop.setMinValue((defVal instanceof Integer) ? (int) cfg.min() : cfg.min());
+            prop.setMinValue(intBounds ? (int) cfg.min() : cfg.min());
         }
         if (cfg.max() < Integer.MAX_VALUE)
         {
-            prop.setMinValue((defVal instanceof Integer) ? (int) cfg.max() : cfg.max());
+            prop.setMaxValue(intBounds ? (int) cfg.max() : cfg.max());
         }
-        return ret;
+
+        if (!cfg.noSync())
+        {
+            syncedKeys.add(field.name);
+        }
+        sections.add(cfg.section());
+
+        return changed;
     }
 
     public ImmutableSet<String> sections()
@@ -171,42 +216,166 @@ public class ConfigProcessor
         return configFile.getCategory(category);
     }
 
+    /**
+     * Sets the given values, received from the server. Values which are not given are left alone.
+     * <p>
+     * Must be called on the client thread, which also reads and reloads the config.
+     */
     public void syncTo(Map<String, Object> values)
     {
-        this.configValues = values;
-        for (String s : configValues.keySet())
+        boolean anyChanged = false;
+        for (Map.Entry<String, Object> e : values.entrySet())
+        {
+            ConfigFields.Entry field = fields.get(e.getKey());
+            if (field == null || field.cfg.noSync())
+            {
+                continue;
+            }
+            if (!field.kind.accepts(e.getValue()))
+            {
+                TTCore.logger.warn("Ignoring synced value of " + modid + " config " + field.name + ", expected " + field.kind + " but got " + e.getValue());
+                continue;
+            }
+
+            configValues.put(field.name, e.getValue());
+            anyChanged |= setValue(field, e.getValue());
+        }
+        updateSyncState();
+
+        if (anyChanged)
+        {
+            if (callback != null)
+            {
+                callback.callback(this);
+            }
+            // no config changed event is posted for synced values
+            TTCoreMethods.invalidateEventCaches();
+        }
+    }
+
+    // returns true if the field changed
+    private boolean setValue(ConfigFields.Entry field, Object value)
+    {
+        ConfigAccessor accessor = fields.accessor;
+        int i = field.index;
+        switch (field.kind)
+        {
+        case INT:
+        {
+            int newValue = (Integer) value;
+            if (accessor.getInt(i) == newValue)
+            {
+                return false;
+            }
+            accessor.setInt(i, newValue);
+            return true;
+        }
+        case BOOLEAN:
+        {
+            boolean newValue = (Boolean) value;
+            if (accessor.getBoolean(i) == newValue)
+            {
+                return false;
+            }
+            accessor.setBoolean(i, newValue);
+            return true;
+        }
+        case DOUBLE:
+        {
+            double newValue = (Double) value;
+            if (accessor.getDouble(i) == newValue)
+            {
+                return false;
+            }
+            accessor.setDouble(i, newValue);
+            return true;
+        }
+        case STRING:
+        {
+            if (value.equals(accessor.getObject(i)))
+            {
+                return false;
+            }
+            accessor.setObject(i, value);
+            return true;
+        }
+        case STRING_ARRAY:
+        {
+            if (Arrays.equals((String[]) value, (String[]) accessor.getObject(i)))
+            {
+                return false;
+            }
+            accessor.setObject(i, value);
+            return true;
+        }
+        default:
+        {
+            if (Arrays.equals((int[]) value, (int[]) accessor.getObject(i)))
+            {
+                return false;
+            }
+            accessor.setObject(i, value);
+            return true;
+        }
+        }
+    }
+
+    ConfigSyncState getSyncState()
+    {
+        return syncState;
+    }
+
+    private void updateSyncState()
+    {
+        Map<String, Object> synced = Maps.newHashMap();
+        for (String key : syncedKeys)
+        {
+            synced.put(key, configValues.get(key));
+        }
+        syncState = new ConfigSyncState(synced);
+    }
+
+    /**
+     * Sends the synced values which changed since {@code old} to all players, if this is a running
+     * server. The packet is sent from the server thread, as this may be called from the client
+     * thread in singleplayer.
+     */
+    private void pushChanges(ConfigSyncState old)
+    {
+        if (!isServerRunning())
         {
-            try
+            return;
+        }
+
+        final Map<String, Object> changed = syncState.getChanged(old.getHashes());
+        if (!changed.isEmpty())
+        {
+            Scheduler.instance().schedule(0, new Runnable()
             {
-                Field f = configs.getDeclaredField(s);
-                Config annot = f.getAnnotation(Config.class);
-                if (annot != null && !annot.noSync())
+                @Override
+                public void run()
                 {
-                    Object newVal = configValues.get(s);
-                    boolean changed = false;
-                    if (!f.get(null).equals(newVal))
+                    if (isServerRunning())
                     {
-                        f.set(null, newVal);
-                        changed = true;
-                    }
-                    if (changed && callback != null)
-                    {
-                        callback.callback(this);
+                        TTPacketHandler.INSTANCE.sendToAll(new PacketConfigSync(modid, changed));
                     }
                 }
-            }
-            catch (Exception e)
-            {
-                throw new RuntimeException(e);
-            }
+            }, Side.SERVER, Priority.CRITICAL);
         }
     }
 
+    private static boolean isServerRunning()
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        return server != null && server.isServerRunning();
+    }
+
     /* Event Handling */
 
     @SubscribeEvent
     public void onPlayerLogin(PlayerEvent.PlayerLoggedInEvent event)
     {
+        // all values, so the client never runs with its own; it only applies the ones that differ
         TTPacketHandler.INSTANCE.sendTo(new PacketConfigSync(this), (EntityPlayerMP) event.player);
     }
 
@@ -0,0 +1,74 @@
+package tterrag.core.common.config;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * An immutable snapshot of the synced values of a {@link ConfigProcessor}, with a hash of each
+ * value, which is used to find the values that changed on reload. Hashes are taken over the
+ * encoded values (see {@link ConfigValueCodec}).
+ * <p>
+ * Being immutable, it can be read from the network threads while the processor is reloading.
+ */
+class ConfigSyncState
+{
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+
+    private final Map<String, Object> values;
+    private final Map<String, Long> hashes;
+
+    ConfigSyncState(Map<String, Object> values)
+    {
+        this.values = ImmutableSortedMap.copyOf(values);
+
+        ImmutableMap.Builder<String, Long> hashes = ImmutableMap.builder();
+        ByteBuf buf = Unpooled.buffer();
+        for (Map.Entry<String, Object> e : this.values.entrySet())
+        {
+            buf.clear();
+            ConfigValueCodec.writeValue(buf, e.getKey(), e.getValue());
+            long valueHash = hashFunction.hashBytes(buf.array(), buf.arrayOffset(), buf.readableBytes()).asLong();
+            hashes.put(e.getKey(), valueHash);
+        }
+        this.hashes = hashes.build();
+    }
+
+    Map<String, Object> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * @return The hash of every value, by key.
+     */
+    Map<String, Long> getHashes()
+    {
+        return hashes;
+    }
+
+    /**
+     * @param otherHashes
+     *            The hashes of another state, from {@link #getHashes()}.
+     * @return The values of this state which differ from, or are missing in, the other state.
+     */
+    Map<String, Object> getChanged(Map<String, Long> otherHashes)
+    {
+        Map<String, Object> ret = Maps.newHashMap();
+        for (Map.Entry<String, Long> e : hashes.entrySet())
+        {
+            if (!e.getValue().equals(otherHashes.get(e.getKey())))
+            {
+                ret.put(e.getKey(), values.get(e.getKey()));
+            }
+        }
+        return ret;
+    }
+}
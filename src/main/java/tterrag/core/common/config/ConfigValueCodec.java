@@ -0,0 +1,191 @@
+package tterrag.core.common.config;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Map;
+
+import tterrag.core.TTCore;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+
+/**
+ * Writes config values straight to a {@link ByteBuf} and back, as a tag byte for the type followed
+ * by the value. Lengths and counts are written as varints.
+ * <p>
+ * Only the types a {@link ConfigProcessor} can produce are supported: {@code int},
+ * {@code boolean}, {@code double}, {@link String}, {@code String[]} and {@code int[]}.
+ */
+class ConfigValueCodec
+{
+    /**
+     * Written at the start of every config sync packet. Must be bumped whenever the layout of any of
+     * them changes.
+     */
+    static final byte FORMAT_VERSION = 2;
+
+    private static final byte INT = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte STRING_ARRAY = 4;
+    private static final byte INT_ARRAY = 5;
+
+    static void writeValues(ByteBuf buf, Map<String, Object> values)
+    {
+        writeVarInt(buf, values.size());
+        for (Map.Entry<String, Object> e : values.entrySet())
+        {
+            writeString(buf, e.getKey());
+            writeValue(buf, e.getKey(), e.getValue());
+        }
+    }
+
+    static Map<String, Object> readValues(ByteBuf buf)
+    {
+        int size = readLength(buf);
+        Map<String, Object> ret = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++)
+        {
+            String key = readString(buf);
+            ret.put(key, readValue(buf));
+        }
+        return ret;
+    }
+
+    static void writeValue(ByteBuf buf, String key, Object value)
+    {
+        if (value instanceof Integer)
+        {
+            buf.writeByte(INT);
+            buf.writeInt((Integer) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            buf.writeByte(BOOLEAN);
+            buf.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Double)
+        {
+            buf.writeByte(DOUBLE);
+            buf.writeDouble((Double) value);
+        }
+        else if (value instanceof String)
+        {
+            buf.writeByte(STRING);
+            writeString(buf, (String) value);
+        }
+        else if (value instanceof String[])
+        {
+            String[] arr = (String[]) value;
+            buf.writeByte(STRING_ARRAY);
+            writeVarInt(buf, arr.length);
+            for (String s : arr)
+            {
+                writeString(buf, s);
+            }
+        }
+        else if (value instanceof int[])
+        {
+            int[] arr = (int[]) value;
+            buf.writeByte(INT_ARRAY);
+            writeVarInt(buf, arr.length);
+            for (int i : arr)
+            {
+                buf.writeInt(i);
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Config value " + key + " can not be synced, unsupported type " + (value == null ? null : value.getClass()));
+        }
+    }
+
+    static Object readValue(ByteBuf buf)
+    {
+        byte tag = buf.readByte();
+        switch (tag)
+        {
+        case INT:
+            return buf.readInt();
+        case BOOLEAN:
+            return buf.readBoolean();
+        case DOUBLE:
+            return buf.readDouble();
+        case STRING:
+            return readString(buf);
+        case STRING_ARRAY:
+            String[] strings = new String[readLength(buf)];
+            for (int i = 0; i < strings.length; i++)
+            {
+                strings[i] = readString(buf);
+            }
+            return strings;
+        case INT_ARRAY:
+            int[] ints = new int[readLength(buf)];
+            for (int i = 0; i < ints.length; i++)
+            {
+                ints[i] = buf.readInt();
+            }
+            return ints;
+        default:
+            throw new IllegalArgumentException("Unknown config value type " + tag);
+        }
+    }
+
+    /**
+     * Reads the format version at the start of a packet, and skips the rest of the packet if it is
+     * unknown.
+     * 
+     * @return False if the packet can not be read.
+     */
+    static boolean readVersion(ByteBuf buf)
+    {
+        byte version = buf.readByte();
+        if (version != FORMAT_VERSION)
+        {
+            // sent by a different version of ttCore, the rest can't be read
+            TTCore.logger.warn("Ignoring config sync packet with unknown format " + version + ", server and client ttCore versions probably differ.");
+            buf.skipBytes(buf.readableBytes());
+            return false;
+        }
+        return true;
+    }
+
+    static void writeVarInt(ByteBuf buf, int i)
+    {
+        ByteBufUtils.writeVarInt(buf, i, 5);
+    }
+
+    /**
+     * Reads a length or count, which can not be more than the remaining bytes, as every element
+     * takes at least one. This keeps a bad packet from allocating huge arrays.
+     */
+    static int readLength(ByteBuf buf)
+    {
+        int len = ByteBufUtils.readVarInt(buf, 5);
+        if (len < 0 || len > buf.readableBytes())
+        {
+            throw new IllegalArgumentException("Invalid length " + len + ", " + buf.readableBytes() + " bytes left");
+        }
+        return len;
+    }
+
+    static void writeString(ByteBuf buf, String s)
+    {
+        byte[] bytes = s.getBytes(Charsets.UTF_8);
+        writeVarInt(buf, bytes.length);
+        buf.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuf buf)
+    {
+        int len = readLength(buf);
+        // decoded straight from the buffer, without copying the bytes out first
+        String ret = buf.toString(buf.readerIndex(), len, Charsets.UTF_8);
+        buf.skipBytes(len);
+        return ret;
+    }
+}
@@ -2,23 +2,24 @@ package tterrag.core.common.config;
 
 import io.netty.buffer.ByteBuf;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-import lombok.SneakyThrows;
-import cpw.mods.fml.common.network.ByteBufUtils;
+import tterrag.core.common.util.Scheduler;
+import tterrag.core.common.util.Scheduler.Priority;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import cpw.mods.fml.relauncher.Side;
 
+/**
+ * Sends values of a {@link ConfigProcessor} to the client, see {@link ConfigValueCodec} for the
+ * encoding. All synced values are sent on login, after that only the ones which changed. Values
+ * which are not sent are left alone.
+ * <p>
+ * The values are applied on the client thread, at the end of the tick the packet arrives in.
+ */
 public class PacketConfigSync implements IMessage, IMessageHandler<PacketConfigSync, PacketConfigSync>
 {
-
     public PacketConfigSync()
     {
     }
@@ -28,51 +29,51 @@ public class PacketConfigSync implements IMessage, IMessageHandler<PacketConfigS
 
     public PacketConfigSync(ConfigProcessor toSync)
     {
-        this.configValues = toSync.configValues;
-        this.modid = toSync.modid;
+        this(toSync.modid, toSync.getSyncState().getValues());
+    }
+
+    PacketConfigSync(String modid, Map<String, Object> configValues)
+    {
+        this.modid = modid;
+        this.configValues = configValues;
     }
 
     @Override
-    @SneakyThrows
     public void toBytes(ByteBuf buf)
     {
-        ByteArrayOutputStream obj = new ByteArrayOutputStream();
-        GZIPOutputStream gzip = new GZIPOutputStream(obj);
-        ObjectOutputStream objStream = new ObjectOutputStream(gzip);
-        objStream.writeObject(configValues);
-        objStream.close();
-
-        buf.writeShort(obj.size());
-        buf.writeBytes(obj.toByteArray());
-
-        ByteBufUtils.writeUTF8String(buf, modid);
+        buf.writeByte(ConfigValueCodec.FORMAT_VERSION);
+        ConfigValueCodec.writeString(buf, modid);
+        ConfigValueCodec.writeValues(buf, configValues);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    @SneakyThrows
     public void fromBytes(ByteBuf buf)
     {
-        short len = buf.readShort();
-        byte[] compressedBody = new byte[len];
-
-        for (short i = 0; i < len; i++)
-            compressedBody[i] = buf.readByte();
-
-        ObjectInputStream obj = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(compressedBody)));
-        configValues = (Map<String, Object>) obj.readObject();
-        obj.close();
+        if (!ConfigValueCodec.readVersion(buf))
+        {
+            return;
+        }
 
-        modid = ByteBufUtils.readUTF8String(buf);
+        modid = ConfigValueCodec.readString(buf);
+        configValues = ConfigValueCodec.readValues(buf);
     }
 
     @Override
     public PacketConfigSync onMessage(PacketConfigSync message, MessageContext ctx)
     {
-        ConfigProcessor processor = ConfigProcessor.processorMap.get(message.modid);
+        final ConfigProcessor processor = message.modid == null ? null : ConfigProcessor.processorMap.get(message.modid);
+        final Map<String, Object> values = message.configValues;
         if (processor != null)
         {
-            processor.syncTo(message.configValues);
+            // handlers run on the netty thread, while the config is read from the client thread
+            Scheduler.instance().schedule(0, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    processor.syncTo(values);
+                }
+            }, Side.CLIENT, Priority.CRITICAL);
         }
         return null;
     }
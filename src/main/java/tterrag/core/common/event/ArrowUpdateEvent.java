@@ -1,8 +1,12 @@
 package tterrag.core.common.event;
 
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.projectile.EntityArrow;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.EntityEvent;
+
+import org.apache.commons.lang3.ArrayUtils;
+
 import cpw.mods.fml.common.eventhandler.Cancelable;
 
 /**
@@ -13,12 +17,47 @@ import cpw.mods.fml.common.eventhandler.Cancelable;
  * <br>
  * This event does not have a result. {@link HasResult}<br>
  * <br>
- * This event is fired on the {@link MinecraftForge#EVENT_BUS}.<br>
+ * This event is fired on the {@link MinecraftForge#EVENT_BUS}, but only if
+ * something listens to it.<br>
+ * <br>
+ * As this fires for every arrow every tick, listeners which run often should
+ * use {@link #addListener(IArrowUpdateListener)} instead, which is called
+ * without creating or posting an event.<br>
  **/
 public class ArrowUpdateEvent extends EntityEvent
 {
+    /**
+     * Called directly each tick that an arrow is updated, before the event is
+     * posted.
+     */
+    public interface IArrowUpdateListener
+    {
+        void onArrowUpdate(EntityArrow arrow);
+    }
+
+    private static volatile IArrowUpdateListener[] listeners = new IArrowUpdateListener[0];
+
     public ArrowUpdateEvent(Entity entity)
     {
         super(entity);
     }
+
+    public static synchronized void addListener(IArrowUpdateListener listener)
+    {
+        listeners = ArrayUtils.add(listeners, listener);
+    }
+
+    public static synchronized void removeListener(IArrowUpdateListener listener)
+    {
+        listeners = ArrayUtils.removeElement(listeners, listener);
+    }
+
+    /**
+     * @return All listeners added with {@link #addListener(IArrowUpdateListener)}. Do not modify
+     *         the returned array.
+     */
+    public static IArrowUpdateListener[] getListeners()
+    {
+        return listeners;
+    }
 }
@@ -0,0 +1,78 @@
+package tterrag.core.common.event;
+
+import net.minecraftforge.common.MinecraftForge;
+import cpw.mods.fml.common.eventhandler.Event;
+import cpw.mods.fml.common.eventhandler.IEventListener;
+
+/**
+ * A switchable target for a hook which fires an event, so that the hook can skip creating and
+ * posting the event while nobody listens to it.
+ * <p>
+ * Each site is bound to an implementation of {@code T} for the current listeners of the event,
+ * usually a no-op when there are none, or one which posts the event to the
+ * {@link MinecraftForge#EVENT_BUS} when there are. Hooks should call {@link #get()} and nothing
+ * else, which leaves the JIT with a monomorphic call it can inline.
+ * <p>
+ * Every call to {@link #get()} checks whether the listeners have changed, which is an identity
+ * comparison of the bus's listener array, so listeners registered or unregistered at any time are
+ * picked up by the next call.
+ */
+public class EventHookSite<T>
+{
+    public interface Binder<T>
+    {
+        /**
+         * @param listeners
+         *            The current listeners of the event, may be empty. Do not modify this array.
+         * @return The target to use until the listeners change.
+         */
+        T bind(IEventListener[] listeners);
+    }
+
+    private final EventListenerTracker tracker;
+    private final Binder<T> binder;
+
+    private volatile IEventListener[] listeners;
+    private volatile T target;
+
+    /**
+     * @param sample
+     *            Any instance of the event type the hook fires, see
+     *            {@link EventListenerTracker#EventListenerTracker(Event)}.
+     * @param binder
+     *            Creates the targets, it is called once right away.
+     */
+    public EventHookSite(Event sample, Binder<T> binder)
+    {
+        this.tracker = new EventListenerTracker(sample);
+        this.binder = binder;
+        update();
+    }
+
+    /**
+     * @return The target bound to the current listeners.
+     */
+    public T get()
+    {
+        update();
+        return target;
+    }
+
+    private void update()
+    {
+        IEventListener[] current = tracker.getListeners();
+        if (current != listeners)
+        {
+            rebind(current);
+        }
+    }
+
+    private synchronized void rebind(IEventListener[] current)
+    {
+        if (current != listeners)
+        {
+            target = binder.bind(current);
+            listeners = current;
+        }
+    }
+}
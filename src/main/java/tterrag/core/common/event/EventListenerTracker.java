@@ -0,0 +1,53 @@
+package tterrag.core.common.event;
+
+import net.minecraftforge.common.MinecraftForge;
+import cpw.mods.fml.common.eventhandler.Event;
+import cpw.mods.fml.common.eventhandler.EventBus;
+import cpw.mods.fml.common.eventhandler.IEventListener;
+import cpw.mods.fml.common.eventhandler.ListenerList;
+import cpw.mods.fml.relauncher.ReflectionHelper;
+
+/**
+ * Looks up the listeners of one event type on the {@link MinecraftForge#EVENT_BUS}, so that hooks
+ * can skip creating and posting events nobody listens to.
+ * <p>
+ * Listeners of parent event types are included, just like when the event is posted.
+ */
+public class EventListenerTracker
+{
+    private static int busID = -1;
+
+    private final ListenerList listeners;
+
+    /**
+     * @param sample
+     *            Any instance of the event type to track. Only used to find its listener list.
+     */
+    public EventListenerTracker(Event sample)
+    {
+        this.listeners = sample.getListenerList();
+    }
+
+    private static int getBusID()
+    {
+        if (busID == -1)
+        {
+            busID = ReflectionHelper.<Integer, EventBus> getPrivateValue(EventBus.class, MinecraftForge.EVENT_BUS, "busID");
+        }
+        return busID;
+    }
+
+    /**
+     * @return The current listeners. The same array is returned until a listener is added or
+     *         removed, so this can be compared by identity to detect changes.
+     */
+    public IEventListener[] getListeners()
+    {
+        return listeners.getListeners(getBusID());
+    }
+
+    public boolean hasListeners()
+    {
+        return getListeners().length > 0;
+    }
+}
@@ -0,0 +1,59 @@
+package tterrag.core.common.event;
+
+import tterrag.core.common.util.LongObjectMap;
+import cpw.mods.fml.common.eventhandler.IEventListener;
+
+/**
+ * A per-thread cache of the results of an event, keyed on a long.
+ * <p>
+ * Each thread's cache is cleared whenever the listeners of the event have changed since it was
+ * last used, after {@link #invalidate()} is called, or once it holds too many results.
+ */
+public class EventResultCache<V>
+{
+    private static final int MAX_SIZE = 4096;
+
+    private class State
+    {
+        private final LongObjectMap<V> results = new LongObjectMap<V>();
+        private IEventListener[] listeners;
+        private int generation;
+    }
+
+    private final ThreadLocal<State> state = new ThreadLocal<State>()
+    {
+        @Override
+        protected State initialValue()
+        {
+            return new State();
+        }
+    };
+
+    private volatile int generation;
+
+    /**
+     * @param listeners
+     *            The current listeners of the event, from {@link EventListenerTracker#getListeners()}.
+     * @return The cached results for this thread.
+     */
+    public LongObjectMap<V> get(IEventListener[] listeners)
+    {
+        State s = state.get();
+        if (s.listeners != listeners || s.generation != generation || s.results.size() >= MAX_SIZE)
+        {
+            s.results.clear();
+            s.listeners = listeners;
+            s.generation = generation;
+        }
+        return s.results;
+    }
+
+    /**
+     * Clears the cache of every thread, e.g. because a listener's behavior depends on a config
+     * value that changed.
+     */
+    public void invalidate()
+    {
+        generation++;
+    }
+}
@@ -1,6 +1,11 @@
 package tterrag.core.common.event;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.minecraft.item.EnumRarity;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.common.MinecraftForge;
 import cpw.mods.fml.common.eventhandler.Cancelable;
@@ -34,11 +39,34 @@ public class ItemStackEvent extends Event
      * calculations, and is provided with the base enchantability when the event
      * is first fired. <br>
      * This event is fired on the {@link MinecraftForge#EVENT_BUS}.<br>
+     * <br>
+     * This event is not fired at all if nothing listens to it. Items passed to
+     * {@link #setCacheable(Item)} only fire it once per damage value for
+     * stacks without NBT, until listeners are added or removed or any config
+     * changes.<br>
      **/
     public static class ItemEnchantabilityEvent extends ItemStackEvent
     {
+        private static final Set<Item> cacheable = Collections.newSetFromMap(new ConcurrentHashMap<Item, Boolean>());
+
         public int enchantability;
 
+        /**
+         * Allows the result of this event to be cached for stacks of the
+         * given item without NBT. Only call this if your listeners always give
+         * the same enchantability for the same item and damage value in that
+         * case.
+         */
+        public static void setCacheable(Item item)
+        {
+            cacheable.add(item);
+        }
+
+        public static boolean isCacheable(Item item)
+        {
+            return cacheable.contains(item);
+        }
+
         public ItemEnchantabilityEvent(ItemStack itemStack, int baseEnchantability)
         {
             super(itemStack);
@@ -57,11 +85,32 @@ public class ItemStackEvent extends Event
      * and is provided with the normal rarity from Item.getRarity() when the
      * event is first fired. <br>
      * This event is fired on the {@link MinecraftForge#EVENT_BUS}.<br>
+     * <br>
+     * This event is not fired at all if nothing listens to it. Items passed to
+     * {@link #setCacheable(Item)} only fire it once per damage value for
+     * stacks without NBT.<br>
      **/
     public static class ItemRarityEvent extends ItemStackEvent
     {
+        private static final Set<Item> cacheable = Collections.newSetFromMap(new ConcurrentHashMap<Item, Boolean>());
+
         public EnumRarity rarity;
 
+        /**
+         * Allows the result of this event to be cached for stacks of the
+         * given item without NBT. Only call this if your listeners always give
+         * the same rarity for the same item and damage value in that case.
+         */
+        public static void setCacheable(Item item)
+        {
+            cacheable.add(item);
+        }
+
+        public static boolean isCacheable(Item item)
+        {
+            return cacheable.contains(item);
+        }
+
         public ItemRarityEvent(ItemStack itemStack, EnumRarity baseRarity)
         {
             super(itemStack);
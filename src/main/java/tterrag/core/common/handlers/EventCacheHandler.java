@@ -0,0 +1,19 @@
+package tterrag.core.common.handlers;
+
+import tterrag.core.common.Handlers.Handler;
+import tterrag.core.common.Handlers.Handler.HandlerType;
+import tterrag.core.common.transform.TTCoreMethods;
+import cpw.mods.fml.client.event.ConfigChangedEvent;
+import cpw.mods.fml.common.eventhandler.EventPriority;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+
+@Handler(HandlerType.FML)
+public class EventCacheHandler
+{
+    // lowest, so that all mods have reloaded their configs first
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onConfigChanged(ConfigChangedEvent event)
+    {
+        TTCoreMethods.invalidateEventCaches();
+    }
+}
@@ -0,0 +1,79 @@
+package tterrag.core.common.transform;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+
+/**
+ * A minimal reader for Forge config files, for use before Forge's {@code Configuration} can be
+ * loaded. Only reads the raw value of each property, ignoring categories, so property names must
+ * be unique within the file.
+ * <p>
+ * A missing or unreadable file is treated as empty, so every lookup returns its default.
+ */
+class EarlyConfig
+{
+    private static final Pattern PROPERTY = Pattern.compile("^[BIDS]:\"?([^\"=]+)\"?=(.*)$");
+
+    private final Map<String, String> values = new HashMap<String, String>();
+
+    EarlyConfig(File file)
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                Matcher m = PROPERTY.matcher(line.trim());
+                if (m.matches())
+                {
+                    values.put(m.group(1), m.group(2).trim());
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            values.clear();
+        }
+        finally
+        {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    boolean getBoolean(String name, boolean def)
+    {
+        String value = values.get(name);
+        return value == null ? def : Boolean.parseBoolean(value);
+    }
+
+    int getInt(String name, int def)
+    {
+        String value = values.get(name);
+        try
+        {
+            return value == null ? def : Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return def;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import net.minecraft.inventory.Container;
 import net.minecraft.inventory.ContainerFurnace;
 import net.minecraft.inventory.Slot;
 import net.minecraft.item.EnumRarity;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.FurnaceRecipes;
 import net.minecraft.tileentity.TileEntityFurnace;
@@ -15,8 +16,14 @@ import net.minecraft.world.WorldType;
 import net.minecraftforge.common.MinecraftForge;
 import tterrag.core.common.config.ConfigHandler;
 import tterrag.core.common.event.ArrowUpdateEvent;
+import tterrag.core.common.event.ArrowUpdateEvent.IArrowUpdateListener;
+import tterrag.core.common.event.EventHookSite;
+import tterrag.core.common.event.EventHookSite.Binder;
+import tterrag.core.common.event.EventResultCache;
 import tterrag.core.common.event.ItemStackEvent.ItemEnchantabilityEvent;
 import tterrag.core.common.event.ItemStackEvent.ItemRarityEvent;
+import tterrag.core.common.util.LongObjectMap;
+import cpw.mods.fml.common.eventhandler.IEventListener;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class TTCoreMethods
@@ -42,23 +49,205 @@ public class TTCoreMethods
         return ConfigHandler.anvilMaxLevel;
     }
 
+    private static class EnchantabilityResult
+    {
+        private final int base, enchantability;
+
+        private EnchantabilityResult(int base, int enchantability)
+        {
+            this.base = base;
+            this.enchantability = enchantability;
+        }
+    }
+
+    private interface EnchantabilityHook
+    {
+        int getItemEnchantability(ItemStack stack, int base);
+    }
+
+    private static final EventResultCache<EnchantabilityResult> enchantabilityCache = new EventResultCache<EnchantabilityResult>();
+
+    private static final EnchantabilityHook noEnchantabilityListeners = new EnchantabilityHook()
+    {
+        @Override
+        public int getItemEnchantability(ItemStack stack, int base)
+        {
+            return base;
+        }
+    };
+
+    private static final EventHookSite<EnchantabilityHook> enchantabilityHook = new EventHookSite<EnchantabilityHook>(new ItemEnchantabilityEvent(null, 0),
+            new Binder<EnchantabilityHook>()
+            {
+                @Override
+                public EnchantabilityHook bind(final IEventListener[] listeners)
+                {
+                    if (listeners.length == 0)
+                    {
+                        return noEnchantabilityListeners;
+                    }
+                    return new EnchantabilityHook()
+                    {
+                        @Override
+                        public int getItemEnchantability(ItemStack stack, int base)
+                        {
+                            return getItemEnchantability(stack, base, listeners);
+                        }
+                    };
+                }
+            });
+
     public static int getItemEnchantability(ItemStack stack, int base)
+    {
+        return enchantabilityHook.get().getItemEnchantability(stack, base);
+    }
+
+    private static int getItemEnchantability(ItemStack stack, int base, IEventListener[] listeners)
+    {
+        Item item = stack.getItem();
+        if (stack.stackTagCompound != null || !ItemEnchantabilityEvent.isCacheable(item))
+        {
+            return postItemEnchantability(stack, base);
+        }
+
+        LongObjectMap<EnchantabilityResult> cache = enchantabilityCache.get(listeners);
+        long key = (long) Item.getIdFromItem(item) << 32 | stack.getItemDamage() & 0xFFFFFFFFL;
+        EnchantabilityResult res = cache.get(key);
+        if (res == null || res.base != base)
+        {
+            res = new EnchantabilityResult(base, postItemEnchantability(stack, base));
+            cache.put(key, res);
+        }
+        return res.enchantability;
+    }
+
+    private static int postItemEnchantability(ItemStack stack, int base)
     {
         ItemEnchantabilityEvent event = new ItemEnchantabilityEvent(stack, base);
         MinecraftForge.EVENT_BUS.post(event);
         return event.enchantability;
     }
 
+    /**
+     * Clears all cached event results, as listeners may act differently after a config change.
+     */
+    public static void invalidateEventCaches()
+    {
+        rarityCache.invalidate();
+        enchantabilityCache.invalidate();
+    }
+
+    private interface RarityHook
+    {
+        EnumRarity getItemRarity(ItemStack stack);
+    }
+
+    private static final EventResultCache<EnumRarity> rarityCache = new EventResultCache<EnumRarity>();
+
+    private static final RarityHook noRarityListeners = new RarityHook()
+    {
+        @Override
+        public EnumRarity getItemRarity(ItemStack stack)
+        {
+            return stack.getItem().getRarity(stack);
+        }
+    };
+
+    private static final EventHookSite<RarityHook> rarityHook = new EventHookSite<RarityHook>(new ItemRarityEvent(null, null), new Binder<RarityHook>()
+    {
+        @Override
+        public RarityHook bind(final IEventListener[] listeners)
+        {
+            if (listeners.length == 0)
+            {
+                return noRarityListeners;
+            }
+            return new RarityHook()
+            {
+                @Override
+                public EnumRarity getItemRarity(ItemStack stack)
+                {
+                    return getItemRarity(stack, listeners);
+                }
+            };
+        }
+    });
+
     public static EnumRarity getItemRarity(ItemStack stack)
+    {
+        return rarityHook.get().getItemRarity(stack);
+    }
+
+    private static EnumRarity getItemRarity(ItemStack stack, IEventListener[] listeners)
+    {
+        Item item = stack.getItem();
+        if (stack.stackTagCompound != null || !ItemRarityEvent.isCacheable(item))
+        {
+            return postItemRarity(stack);
+        }
+
+        LongObjectMap<EnumRarity> cache = rarityCache.get(listeners);
+        long key = (long) Item.getIdFromItem(item) << 32 | stack.getItemDamage() & 0xFFFFFFFFL;
+        EnumRarity ret = cache.get(key);
+        if (ret == null)
+        {
+            ret = postItemRarity(stack);
+            if (ret != null)
+            {
+                cache.put(key, ret);
+            }
+        }
+        return ret;
+    }
+
+    private static EnumRarity postItemRarity(ItemStack stack)
     {
         ItemRarityEvent event = new ItemRarityEvent(stack, stack.getItem().getRarity(stack));
         MinecraftForge.EVENT_BUS.post(event);
         return event.rarity;
     }
 
+    private interface ArrowHook
+    {
+        void onArrowUpdate(EntityArrow entity);
+    }
+
+    private static final ArrowHook noArrowEventListeners = new ArrowHook()
+    {
+        @Override
+        public void onArrowUpdate(EntityArrow entity)
+        {
+            for (IArrowUpdateListener listener : ArrowUpdateEvent.getListeners())
+            {
+                listener.onArrowUpdate(entity);
+            }
+        }
+    };
+
+    private static final EventHookSite<ArrowHook> arrowHook = new EventHookSite<ArrowHook>(new ArrowUpdateEvent(null), new Binder<ArrowHook>()
+    {
+        @Override
+        public ArrowHook bind(final IEventListener[] listeners)
+        {
+            if (listeners.length == 0)
+            {
+                return noArrowEventListeners;
+            }
+            return new ArrowHook()
+            {
+                @Override
+                public void onArrowUpdate(EntityArrow entity)
+                {
+                    noArrowEventListeners.onArrowUpdate(entity);
+                    MinecraftForge.EVENT_BUS.post(new ArrowUpdateEvent(entity));
+                }
+            };
+        }
+    });
+
     public static void onArrowUpdate(EntityArrow entity)
     {
-        MinecraftForge.EVENT_BUS.post(new ArrowUpdateEvent(entity));
+        arrowHook.get().onArrowUpdate(entity);
     }
 
     // mostly copied from ContainerFurnace
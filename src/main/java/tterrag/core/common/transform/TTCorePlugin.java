@@ -1,7 +1,12 @@
 package tterrag.core.common.transform;
 
+import java.io.File;
 import java.util.Map;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import tterrag.core.TTCore;
 import cpw.mods.fml.relauncher.IFMLLoadingPlugin;
 import cpw.mods.fml.relauncher.IFMLLoadingPlugin.MCVersion;
 
@@ -10,15 +15,28 @@ import cpw.mods.fml.relauncher.IFMLLoadingPlugin.MCVersion;
 @IFMLLoadingPlugin.SortingIndex(Integer.MAX_VALUE) // we want deobf no matter what
 public class TTCorePlugin implements IFMLLoadingPlugin
 {
+    /**
+     * For use by the transformer, which must not load {@link TTCore} while classes are loading.
+     */
+    static final Logger logger = LogManager.getLogger(TTCore.NAME);
+
     public static boolean runtimeDeobfEnabled = false;
+    public static File mcLocation;
+
+    /**
+     * The jar TTCore was loaded from, or null if it is on the classpath.
+     */
+    static File coremodLocation;
+
+    /**
+     * TTCore's config, read before Forge can load it. Null until {@link #injectData(Map)} is called.
+     */
+    static EarlyConfig earlyConfig;
 
     @Override
     public String[] getASMTransformerClass()
     {
-        return new String[] { 
-                "tterrag.core.common.transform.TTCoreTransformer",
-                "tterrag.core.common.transform.TTCoreTransformerClient"
-       };
+        return new String[] { "tterrag.core.common.transform.TTCoreTransformer" };
     }
 
     @Override
@@ -37,6 +55,9 @@ public class TTCorePlugin implements IFMLLoadingPlugin
     public void injectData(Map<String, Object> data)
     {
         runtimeDeobfEnabled = (Boolean) data.get("runtimeDeobfuscationEnabled");
+        mcLocation = (File) data.get("mcLocation");
+        coremodLocation = (File) data.get("coremodLocation");
+        earlyConfig = new EarlyConfig(new File(mcLocation, "config/" + TTCore.MODID + "/" + TTCore.MODID + ".cfg"));
     }
 
     @Override
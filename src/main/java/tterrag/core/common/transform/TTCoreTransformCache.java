@@ -0,0 +1,218 @@
+package tterrag.core.common.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+/**
+ * An on-disk cache of transformed classes, so that unchanged classes do not have to go through ASM
+ * again on the next launch.
+ * <p>
+ * Entries are keyed on the class name and a hash of its untransformed bytes. The file starts with
+ * a key for everything else the output depends on (see {@link TTCoreTransformer#getCacheKey()}),
+ * and is thrown away when that does not match. The entries that existed at launch are read through
+ * a memory mapped buffer, new ones are appended to the end of the file.
+ * <p>
+ * Any I/O error disables the cache for the rest of the launch. The file is closed when the game
+ * exits.
+ */
+class TTCoreTransformCache
+{
+    private static final int MAGIC = 0x54544343; // TTCC
+
+    /**
+     * Files bigger than this are cleared on load, so that entries for old inputs can't pile up.
+     */
+    private static final long MAX_SIZE = 16 * 1024 * 1024;
+
+    private final File file;
+    private final String cacheKey;
+
+    private RandomAccessFile raf;
+    private MappedByteBuffer mapped;
+
+    /**
+     * Offset of each cached class in {@link #mapped}, followed by its length.
+     */
+    private final Map<String, long[]> index = new HashMap<String, long[]>();
+
+    private boolean disabled;
+
+    TTCoreTransformCache(File file, String cacheKey)
+    {
+        this.file = file;
+        this.cacheKey = cacheKey;
+
+        try
+        {
+            open();
+        }
+        catch (IOException e)
+        {
+            disable("Could not open transformer cache", e);
+            return;
+        }
+
+        // classes are transformed for as long as the game runs, so the file is kept open until then
+        Runtime.getRuntime().addShutdownHook(new Thread("ttCore Transform Cache Shutdown")
+        {
+            @Override
+            public void run()
+            {
+                close();
+            }
+        });
+    }
+
+    private void open() throws IOException
+    {
+        file.getParentFile().mkdirs();
+        raf = new RandomAccessFile(file, "rw");
+
+        long size = raf.length();
+        if (size > 0 && size <= MAX_SIZE && readIndex(size))
+        {
+            if (!index.isEmpty())
+            {
+                mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return;
+        }
+
+        // missing, outdated, too big or cut off mid-write, start over
+        index.clear();
+        raf.setLength(0);
+        raf.seek(0);
+        raf.writeInt(MAGIC);
+        raf.writeUTF(cacheKey);
+    }
+
+    /**
+     * Reads the key and position of every entry. The data itself is only read through the mapped
+     * buffer when needed.
+     * 
+     * @return False if the file is for a different cache key or is incomplete.
+     */
+    private boolean readIndex(long size) throws IOException
+    {
+        try
+        {
+            if (raf.readInt() != MAGIC || !cacheKey.equals(raf.readUTF()))
+            {
+                return false;
+            }
+
+            while (raf.getFilePointer() < size)
+            {
+                String key = raf.readUTF();
+                int length = raf.readInt();
+                long pos = raf.getFilePointer();
+                if (length < 0 || pos + length > size)
+                {
+                    return false;
+                }
+                index.put(key, new long[] { pos, length });
+                raf.seek(pos + length);
+            }
+            return true;
+        }
+        catch (EOFException e)
+        {
+            return false;
+        }
+        catch (UTFDataFormatException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return The key to look up and store the transformed version of the given class under.
+     */
+    String getKey(String className, byte[] input)
+    {
+        return className + '#' + Hashing.murmur3_128().hashBytes(input);
+    }
+
+    /**
+     * @return The cached output for the key, or null if there is none.
+     */
+    synchronized byte[] get(String key)
+    {
+        long[] entry = disabled || mapped == null ? null : index.get(key);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        byte[] ret = new byte[(int) entry[1]];
+        ByteBuffer buf = mapped.duplicate();
+        buf.position((int) entry[0]);
+        buf.get(ret);
+        return ret;
+    }
+
+    synchronized void put(String key, byte[] output)
+    {
+        if (disabled)
+        {
+            return;
+        }
+
+        try
+        {
+            // written in one go, so a crash can't leave half an entry behind in most cases
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(output.length + key.length() + 6);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(key);
+            out.writeInt(output.length);
+            out.write(output);
+            out.close();
+            raf.seek(raf.length());
+            raf.write(bytes.toByteArray());
+        }
+        catch (IOException e)
+        {
+            disable("Could not write to transformer cache", e);
+        }
+    }
+
+    private void disable(String message, IOException e)
+    {
+        TTCorePlugin.logger.warn(message + " " + file.getAbsolutePath() + ", classes will be transformed as usual.", e);
+        close();
+    }
+
+    /**
+     * Closes the file, after which nothing is read or written. The mapped buffer can't be unmapped
+     * explicitly, it is released once nothing references it anymore.
+     */
+    synchronized void close()
+    {
+        disabled = true;
+        mapped = null;
+        index.clear();
+        if (raf != null)
+        {
+            try
+            {
+                raf.close();
+            }
+            catch (IOException ignored)
+            {}
+            raf = null;
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package tterrag.core.common.transform;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import lombok.AllArgsConstructor;
 import net.minecraft.launchwrapper.IClassTransformer;
 
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
 import org.objectweb.asm.tree.IntInsnNode;
@@ -19,10 +30,28 @@ import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.VarInsnNode;
 
 import tterrag.core.TTCore;
+import tterrag.core.common.util.StartupProfiler;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import cpw.mods.fml.relauncher.FMLLaunchHandler;
 import cpw.mods.fml.relauncher.IFMLLoadingPlugin.MCVersion;
 
 import static org.objectweb.asm.Opcodes.*;
 
+/**
+ * Applies all of TTCore's bytecode patches.
+ * <p>
+ * Patches are registered per class in {@link #TTCoreTransformer()}, and each patches the first
+ * method matching its name. Each class is looked up once in the registry, and classes without
+ * patches are returned untouched. All patches for a class are applied to the same
+ * {@link ClassNode}, which is only written back once. Classes where every patch just replaces a
+ * method body with a call to {@link TTCoreMethods} skip the tree entirely.
+ * <p>
+ * Once {@link TTCorePlugin} has read the config, the patches of disabled features are dropped (see
+ * {@link #configure(EarlyConfig)}), so their classes are not touched at all.
+ */
 @MCVersion(value = "1.7.10")
 public class TTCoreTransformer implements IClassTransformer
 {
@@ -53,11 +82,29 @@ public class TTCoreTransformer implements IClassTransformer
         // no hashcode because I'm naughty
     }
 
-    protected static abstract class Transform
+    /**
+     * A change to one method of a class.
+     */
+    protected static abstract class Patch
     {
-        abstract void transform(Iterator<MethodNode> methods);
+        protected final ObfSafeName method;
+
+        protected Patch(ObfSafeName method)
+        {
+            this.method = method;
+        }
+
+        abstract void apply(MethodNode m);
     }
 
+    /**
+     * Should be bumped whenever a patch changes what it outputs. The cache key also contains a hash
+     * of TTCore's jar, so this only matters when the jar can't be read.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    private static final String hooksClass = "tterrag/core/common/transform/TTCoreMethods";
+
     private static final String worldTypeClass = "net.minecraft.world.WorldType";
     private static final ObfSafeName voidFogMethod = new ObfSafeName("hasVoidParticles", "func_76564_j");
     private static final String voidFogMethodSig = "(Lnet/minecraft/world/WorldType;Z)Z";
@@ -85,215 +132,529 @@ public class TTCoreTransformer implements IClassTransformer
     private static final ObfSafeName containerFurnaceMethod = new ObfSafeName("transferStackInSlot", "func_82846_b");
     private static final String containerFurnaceMethodSig = "(Lnet/minecraft/inventory/ContainerFurnace;Lnet/minecraft/entity/player/EntityPlayer;I)Lnet/minecraft/item/ItemStack;";
 
-    @Override
-    public byte[] transform(String name, String transformedName, byte[] basicClass)
+    private static final String scrollingListClass = "cpw.mods.fml.client.GuiScrollingList";
+    private static final ObfSafeName drawScreen = new ObfSafeName("func_73863_a", "drawScreen");
+
+    private static final String slotModListClass = "cpw.mods.fml.client.GuiSlotModList";
+    private static final ObfSafeName drawBackground = new ObfSafeName("drawBackground", "drawBackground");
+
+    private volatile Map<String, List<Patch>> patches = new HashMap<String, List<Patch>>();
+
+    private TTCoreTransformCache cache;
+    private boolean cacheLoaded;
+    private volatile boolean configured;
+
+    public TTCoreTransformer()
     {
         // Void fog removal
-        if (transformedName.equals(worldTypeClass))
+        addPatch(worldTypeClass, new DelegatePatch(voidFogMethod, "hasVoidParticles", voidFogMethodSig));
+
+        // Anvil max level
+        addPatch(anvilContainerClass, new AnvilPatch(anvilContainerMethod));
+        addPatch(anvilGuiClass, new AnvilPatch(anvilGuiMethod));
+
+        // Item Enchantability Event
+        addPatch(enchantHelperClass, new EnchantabilityPatch(buildEnchantListMethod, 1, 4));
+        addPatch(enchantHelperClass, new EnchantabilityPatch(calcEnchantabilityMethod, 3, 5));
+
+        // ItemRarity Event
+        addPatch(itemStackClass, new DelegatePatch(itemStackMethod, "getItemRarity", itemStackMethodSig));
+
+        // ArrowUpdate Event
+        addPatch(entityArrowClass, new Patch(entityArrowMethod)
         {
-            basicClass = transform(basicClass, worldTypeClass, voidFogMethod, new Transform()
+            @Override
+            void apply(MethodNode m)
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
+                for (int i = 0; i < m.instructions.size(); i++)
                 {
-                    while (methods.hasNext())
+                    AbstractInsnNode next = m.instructions.get(i);
+                    if (next instanceof MethodInsnNode)
                     {
-                        MethodNode m = methods.next();
-                        if (voidFogMethod.equals(m.name))
-                        {
-                            m.instructions.clear();
-
-                            m.instructions.add(new VarInsnNode(ALOAD, 0));
-                            m.instructions.add(new VarInsnNode(ILOAD, 1));
-                            m.instructions.add(new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods", "hasVoidParticles",
-                                    voidFogMethodSig, false));
-                            m.instructions.add(new InsnNode(IRETURN));
-
-                            break;
-                        }
+                        InsnList toAdd = new InsnList();
+                        toAdd.add(new VarInsnNode(ALOAD, 0));
+                        toAdd.add(new MethodInsnNode(INVOKESTATIC, hooksClass, "onArrowUpdate", entityArrowMethodSig, false));
+                        m.instructions.insert(next, toAdd);
+                        break;
                     }
                 }
-            });
-        }
-        // Anvil max level
-        else if (transformedName.equals(anvilContainerClass) || transformedName.equals(anvilGuiClass))
+            }
+        });
+
+        // Furnace Shift Click Fix
+        addPatch(containerFurnaceClass, new DelegatePatch(containerFurnaceMethod, "transferStackInSlot", containerFurnaceMethodSig));
+
+        // Mod list scrolling fix (client only, these classes never load on a server)
+        addPatch(scrollingListClass, new Patch(drawScreen)
         {
-            basicClass = transform(basicClass, anvilContainerClass, anvilContainerMethod, new Transform()
+            @Override
+            void apply(MethodNode m)
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
+                for (int i = 0; i < m.instructions.size(); i++)
                 {
-                    while (methods.hasNext())
+                    AbstractInsnNode n = m.instructions.get(i);
+                    if (n instanceof InsnNode && n.getOpcode() == ICONST_4)
                     {
-                        MethodNode m = methods.next();
-                        if (anvilContainerMethod.equals(m.name) || anvilGuiMethod.equals(m.name))
+                        AbstractInsnNode next = m.instructions.get(++i);
+                        if (next instanceof VarInsnNode && next.getOpcode() == ISTORE && ((VarInsnNode) next).var == 15)
                         {
-                            for (int i = 0; i < m.instructions.size(); i++)
-                            {
-                                AbstractInsnNode next = m.instructions.get(i);
-
-                                next = m.instructions.get(i);
-                                if (next instanceof IntInsnNode && ((IntInsnNode) next).operand == 40)
-                                {
-                                    m.instructions.set(next, new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods",
-                                            "getMaxAnvilCost", "()I", false));
-                                }
-                            }
+                            i += 2;
+                            AbstractInsnNode insertPoint = m.instructions.get(i++);
+                            m.instructions.remove(m.instructions.get(i));
+                            m.instructions.remove(m.instructions.get(i));
+                            m.instructions.remove(m.instructions.get(i));
+                            m.instructions.remove(m.instructions.get(i));
+                            m.instructions.insert(insertPoint, new InsnNode(ICONST_1));
                         }
                     }
                 }
-            });
+            }
+        });
+
+        // Mod list background fix
+        addPatch(slotModListClass, new Patch(drawBackground)
+        {
+            @SuppressWarnings("deprecation")
+            @Override
+            void apply(MethodNode m)
+            {
+                m.instructions.clear();
+                ObfSafeName drawBackground = new ObfSafeName("drawBackground", "func_146278_c");
+                String fieldOwner = "cpw/mods/fml/client/GuiSlotModList";
+                String fieldName = "parent";
+                String fieldType = "Lcpw/mods/fml/client/GuiModList;";
+
+                InsnList list = new InsnList();
+                list.add(new VarInsnNode(ALOAD, 0));
+                list.add(new FieldInsnNode(GETFIELD, fieldOwner, fieldName, fieldType));
+                list.add(new InsnNode(ICONST_0));
+                list.add(new MethodInsnNode(INVOKEVIRTUAL, "cpw/mods/fml/client/GuiModList", drawBackground.getName(), "(I)V"));
+                list.add(new InsnNode(RETURN));
+
+                m.instructions.insert(list);
+            }
+        });
+    }
+
+    /**
+     * Replaces the whole body of a method with a call to a static hook in {@link TTCoreMethods},
+     * which is passed {@code this} (for instance methods) and all arguments, and whose result is
+     * returned.
+     * <p>
+     * Classes which only have these patches are rewritten without building a {@link ClassNode}.
+     */
+    private static class DelegatePatch extends Patch
+    {
+        private final String hook, hookDesc;
+
+        private DelegatePatch(ObfSafeName method, String hook, String hookDesc)
+        {
+            super(method);
+            this.hook = hook;
+            this.hookDesc = hookDesc;
         }
-        // Item Enchantability Event
-        else if (transformedName.equals(enchantHelperClass))
+
+        @Override
+        void apply(MethodNode m)
         {
-            final Map<String, int[]> data = new HashMap<String, int[]>();
-            data.put(buildEnchantListMethod.getName(), new int[] { 1, 4 });
-            data.put(calcEnchantabilityMethod.getName(), new int[] { 3, 5 });
-            Transform transformer = new Transform()
+            m.instructions.clear();
+            m.tryCatchBlocks.clear();
+            if (m.localVariables != null)
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
-                {
-                    while (methods.hasNext())
-                    {
-                        MethodNode m = methods.next();
-                        if (data.keySet().contains(m.name))
-                        {
-                            int[] indeces = data.get(m.name);
-                            for (int i = 0; i < m.instructions.size(); i++)
-                            {
-                                AbstractInsnNode next = m.instructions.get(i);
-                                if (next instanceof VarInsnNode)
-                                {
-                                    VarInsnNode varNode = (VarInsnNode) next;
-                                    if (varNode.getOpcode() == ISTORE && varNode.var == indeces[1])
-                                    {
-                                        InsnList toAdd = new InsnList();
-                                        toAdd.add(new VarInsnNode(ALOAD, indeces[0]));
-                                        toAdd.add(new VarInsnNode(ILOAD, indeces[1]));
-                                        toAdd.add(new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods",
-                                                "getItemEnchantability", enchantHelperMethodSig, false));
-                                        toAdd.add(new VarInsnNode(ISTORE, indeces[1]));
-                                        m.instructions.insert(next, toAdd);
-                                        break;
-                                    }
-                                }
-                            }
-
-                            break;
-                        }
-                    }
-                }
-            };
+                m.localVariables.clear();
+            }
+            writeBody(m, m.access, m.desc);
+        }
 
-            basicClass = transform(basicClass, enchantHelperClass, buildEnchantListMethod, transformer);
+        private void writeBody(MethodVisitor mv, int access, String desc)
+        {
+            mv.visitCode();
+
+            int slot = 0;
+            if ((access & ACC_STATIC) == 0)
+            {
+                mv.visitVarInsn(ALOAD, 0);
+                slot++;
+            }
+            for (Type arg : Type.getArgumentTypes(desc))
+            {
+                mv.visitVarInsn(arg.getOpcode(ILOAD), slot);
+                slot += arg.getSize();
+            }
+
+            Type ret = Type.getReturnType(desc);
+            mv.visitMethodInsn(INVOKESTATIC, hooksClass, hook, hookDesc, false);
+            mv.visitInsn(ret.getOpcode(IRETURN));
+            mv.visitMaxs(Math.max(slot, ret.getSize()), slot);
         }
-        // ItemRarity Event
-        else if (transformedName.equals(itemStackClass))
+    }
+
+    /**
+     * Passes everything but the code of a method on to {@code target}, and writes the body of a
+     * {@link DelegatePatch} in place of the code.
+     */
+    private static class BodyReplacer extends MethodVisitor
+    {
+        private final MethodVisitor target;
+        private final DelegatePatch patch;
+        private final int access;
+        private final String desc;
+
+        private BodyReplacer(MethodVisitor target, DelegatePatch patch, int access, String desc)
+        {
+            // no delegate, so all code events are dropped
+            super(ASM5);
+            this.target = target;
+            this.patch = patch;
+            this.access = access;
+            this.desc = desc;
+        }
+
+        @Override
+        public void visitParameter(String name, int access)
+        {
+            target.visitParameter(name, access);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotationDefault()
+        {
+            return target.visitAnnotationDefault();
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible)
         {
-            basicClass = transform(basicClass, itemStackClass, itemStackMethod, new Transform()
+            return target.visitAnnotation(desc, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible)
+        {
+            return target.visitTypeAnnotation(typeRef, typePath, desc, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible)
+        {
+            return target.visitParameterAnnotation(parameter, desc, visible);
+        }
+
+        @Override
+        public void visitAttribute(Attribute attr)
+        {
+            target.visitAttribute(attr);
+        }
+
+        @Override
+        public void visitCode()
+        {
+            patch.writeBody(target, access, desc);
+        }
+
+        @Override
+        public void visitEnd()
+        {
+            target.visitEnd();
+        }
+    }
+
+    private static class AnvilPatch extends Patch
+    {
+        private AnvilPatch(ObfSafeName method)
+        {
+            super(method);
+        }
+
+        @Override
+        void apply(MethodNode m)
+        {
+            for (int i = 0; i < m.instructions.size(); i++)
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
+                AbstractInsnNode next = m.instructions.get(i);
+                if (next instanceof IntInsnNode && ((IntInsnNode) next).operand == 40)
                 {
-                    while (methods.hasNext())
-                    {
-                        MethodNode m = methods.next();
-                        if (itemStackMethod.equals(m.name))
-                        {
-                            m.instructions.clear();
+                    m.instructions.set(next, new MethodInsnNode(INVOKESTATIC, hooksClass, "getMaxAnvilCost", "()I", false));
+                }
+            }
+        }
+    }
 
-                            m.instructions.add(new VarInsnNode(ALOAD, 0));
-                            m.instructions.add(new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods", "getItemRarity",
-                                    itemStackMethodSig, false));
-                            m.instructions.add(new InsnNode(ARETURN));
+    private static class EnchantabilityPatch extends Patch
+    {
+        private final int stackVar, enchantabilityVar;
 
-                            break;
-                        }
-                    }
-                }
-            });
+        private EnchantabilityPatch(ObfSafeName method, int stackVar, int enchantabilityVar)
+        {
+            super(method);
+            this.stackVar = stackVar;
+            this.enchantabilityVar = enchantabilityVar;
         }
-        // ArrowUpdate Event
-        else if (transformedName.equals(entityArrowClass))
+
+        @Override
+        void apply(MethodNode m)
         {
-            basicClass = transform(basicClass, entityArrowClass, entityArrowMethod, new Transform()
+            for (int i = 0; i < m.instructions.size(); i++)
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
+                AbstractInsnNode next = m.instructions.get(i);
+                if (next instanceof VarInsnNode)
                 {
-                    while (methods.hasNext())
+                    VarInsnNode varNode = (VarInsnNode) next;
+                    if (varNode.getOpcode() == ISTORE && varNode.var == enchantabilityVar)
                     {
-                        MethodNode m = methods.next();
-                        if (entityArrowMethod.equals(m.name))
-                        {
-                            for (int i = 0; i < m.instructions.size(); i++)
-                            {
-                                AbstractInsnNode next = m.instructions.get(i);
-                                if (next instanceof MethodInsnNode)
-                                {
-                                    InsnList toAdd = new InsnList();
-                                    toAdd.add(new VarInsnNode(ALOAD, 0));
-                                    toAdd.add(new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods", "onArrowUpdate",
-                                            entityArrowMethodSig, false));
-                                    m.instructions.insert(next, toAdd);
-                                    break;
-                                }
-                            }
-                            break;
-                        }
+                        InsnList toAdd = new InsnList();
+                        toAdd.add(new VarInsnNode(ALOAD, stackVar));
+                        toAdd.add(new VarInsnNode(ILOAD, enchantabilityVar));
+                        toAdd.add(new MethodInsnNode(INVOKESTATIC, hooksClass, "getItemEnchantability", enchantHelperMethodSig, false));
+                        toAdd.add(new VarInsnNode(ISTORE, enchantabilityVar));
+                        m.instructions.insert(next, toAdd);
+                        break;
                     }
                 }
-            });
+            }
         }
-        // Furnace Shift Click Fix
-        else if (transformedName.equals(containerFurnaceClass))
+    }
+
+    protected final void addPatch(String className, Patch patch)
+    {
+        List<Patch> list = patches.get(className);
+        if (list == null)
+        {
+            list = new ArrayList<Patch>();
+            patches.put(className, list);
+        }
+        list.add(patch);
+    }
+
+    @Override
+    public byte[] transform(String name, String transformedName, byte[] basicClass)
+    {
+        if (!configured && TTCorePlugin.earlyConfig != null)
         {
-            basicClass = transform(basicClass, containerFurnaceClass, containerFurnaceMethod, new Transform()
+            configure(TTCorePlugin.earlyConfig);
+        }
+
+        List<Patch> list = patches.get(transformedName);
+        if (list == null || basicClass == null)
+        {
+            return basicClass;
+        }
+
+        // the cache key depends on which patches are enabled
+        TTCoreTransformCache cache = configured ? getCache() : null;
+        String key = cache == null ? null : cache.getKey(transformedName, basicClass);
+        byte[] cached = key == null ? null : cache.get(key);
+        if (cached != null)
+        {
+            TTCorePlugin.logger.info("Using cached transformation of " + transformedName);
+            return cached;
+        }
+
+        byte[] ret = transform(basicClass, transformedName, list);
+        if (key != null)
+        {
+            cache.put(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Drops the patches of disabled features. This happens on first use, as the plugin only reads
+     * the config after the transformer is created. Classes loaded before that get every patch.
+     * <p>
+     * Nothing in here may load a class through the launch class loader, as that would come back
+     * into this transformer.
+     */
+    private synchronized void configure(EarlyConfig config)
+    {
+        if (configured)
+        {
+            return;
+        }
+        configured = true;
+
+        Map<String, List<Patch>> enabled = new HashMap<String, List<Patch>>(patches);
+
+        // 0 is vanilla behavior
+        if (config.getInt("disableVoidFog", 1) == 0)
+        {
+            enabled.remove(worldTypeClass);
+        }
+        // the max level is synced from the server, so clients always need the patch
+        if (config.getInt("anvilMaxLevel", 40) == 40 && FMLLaunchHandler.side().isServer())
+        {
+            enabled.remove(anvilContainerClass);
+        }
+        if (!config.getBoolean("itemEnchantabilityEvent", true))
+        {
+            enabled.remove(enchantHelperClass);
+        }
+        if (!config.getBoolean("itemRarityEvent", true))
+        {
+            enabled.remove(itemStackClass);
+        }
+        if (!config.getBoolean("arrowUpdateEvent", true))
+        {
+            enabled.remove(entityArrowClass);
+        }
+        if (!config.getBoolean("furnaceShiftClickFix", true))
+        {
+            enabled.remove(containerFurnaceClass);
+        }
+
+        for (String className : patches.keySet())
+        {
+            if (!enabled.containsKey(className))
             {
-                @Override
-                void transform(Iterator<MethodNode> methods)
-                {
-                    while (methods.hasNext())
-                    {
-                        MethodNode m = methods.next();
-                        if (containerFurnaceMethod.equals(m.name))
-                        {
-                            m.instructions.clear();
+                TTCorePlugin.logger.info("Feature disabled, not transforming " + className);
+            }
+        }
+        patches = enabled;
+    }
 
-                            m.instructions.add(new VarInsnNode(ALOAD, 0));
-                            m.instructions.add(new VarInsnNode(ALOAD, 1));
-                            m.instructions.add(new VarInsnNode(ILOAD, 2));
-                            m.instructions.add(new MethodInsnNode(INVOKESTATIC, "tterrag/core/common/transform/TTCoreMethods", "transferStackInSlot",
-                                    containerFurnaceMethodSig, false));
-                            m.instructions.add(new InsnNode(ARETURN));
+    /**
+     * Opens the cache the first time a patched class is transformed after {@link #configure(EarlyConfig)}.
+     * 
+     * @return The cache, or null if it is not used in this environment.
+     */
+    private synchronized TTCoreTransformCache getCache()
+    {
+        if (!cacheLoaded)
+        {
+            // set first, loading the cache class comes back through this transformer
+            cacheLoaded = true;
+            // dev environments change the patches without changing the version
+            if (TTCorePlugin.runtimeDeobfEnabled && TTCorePlugin.mcLocation != null)
+            {
+                // not in config/, which modpacks ship
+                cache = new TTCoreTransformCache(new File(TTCorePlugin.mcLocation, TTCore.MODID + "-cache/transformCache.bin"), getCacheKey());
+            }
+        }
+        return cache;
+    }
 
-                            break;
-                        }
-                    }
-                }
-            });
+    /**
+     * @return A key for everything besides the input class which affects the output of this
+     *         transformer: TTCore's version and jar, and the patches enabled by
+     *         {@link #configure(EarlyConfig)}.
+     */
+    String getCacheKey()
+    {
+        StringBuilder key = new StringBuilder();
+        key.append(CACHE_VERSION).append(';').append(TTCore.VERSION).append(';').append(TTCorePlugin.runtimeDeobfEnabled);
+        key.append(';').append(getJarHash());
+
+        // only the enabled patches are left once configured
+        List<String> classes = new ArrayList<String>(patches.keySet());
+        Collections.sort(classes);
+        for (String className : classes)
+        {
+            key.append(';').append(className);
+            for (Patch patch : patches.get(className))
+            {
+                key.append(',').append(patch.method.getName());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return A hash of the jar TTCore was loaded from, so that an edited patch can't be served
+     *         from the cache of an older build with the same version. Empty if there is no jar.
+     */
+    private static String getJarHash()
+    {
+        File jar = TTCorePlugin.coremodLocation;
+        if (jar == null || !jar.isFile())
+        {
+            return "";
         }
 
-        return basicClass;
+        try
+        {
+            return Files.hash(jar, Hashing.murmur3_128()).toString();
+        }
+        catch (IOException e)
+        {
+            TTCorePlugin.logger.warn("Could not hash " + jar.getAbsolutePath() + " for the transformer cache key.", e);
+            return "";
+        }
     }
 
-    protected final byte[] transform(byte[] classBytes, String className, ObfSafeName methodName, Transform transformer)
+    protected final byte[] transform(byte[] classBytes, String className, List<Patch> list)
     {
-        TTCore.logger.info("Transforming Class [" + className + "], Method [" + methodName.getName() + "]");
+        long start = StartupProfiler.start();
 
+        boolean delegatesOnly = true;
+        for (Patch patch : list)
+        {
+            delegatesOnly &= patch instanceof DelegatePatch;
+        }
+
+        byte[] ret = delegatesOnly ? transformStreaming(classBytes, className, list) : transformTree(classBytes, className, list);
+
+        // the mod which caused the class to load is unknown here, so this is attributed to us
+        StartupProfiler.end(start, StartupProfiler.TRANSFORMER, TTCore.MODID, className);
+        TTCorePlugin.logger.info("Transforming " + className + " Finished.");
+        return ret;
+    }
+
+    private byte[] transformTree(byte[] classBytes, String className, List<Patch> list)
+    {
         ClassNode classNode = new ClassNode();
         ClassReader classReader = new ClassReader(classBytes);
         classReader.accept(classNode, 0);
 
-        Iterator<MethodNode> methods = classNode.methods.iterator();
-
-        transformer.transform(methods);
+        for (Patch patch : list)
+        {
+            for (MethodNode m : classNode.methods)
+            {
+                if (patch.method.equals(m.name))
+                {
+                    TTCorePlugin.logger.info("Transforming Class [" + className + "], Method [" + patch.method.getName() + "]");
+                    patch.apply(m);
+                    break;
+                }
+            }
+        }
 
         ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
         classNode.accept(cw);
-        TTCore.logger.info("Transforming " + className + " Finished.");
+        return cw.toByteArray();
+    }
+
+    /**
+     * Copies the class straight from the reader to the writer, only swapping out the bodies of
+     * patched methods. The writer shares the constant pool of the reader, so all other methods are
+     * copied over as they are, without being parsed. The new bodies need no stack map frames and
+     * their max stack and locals are known, so nothing has to be computed either.
+     */
+    private byte[] transformStreaming(byte[] classBytes, final String className, final List<Patch> list)
+    {
+        ClassReader classReader = new ClassReader(classBytes);
+        ClassWriter cw = new ClassWriter(classReader, 0);
+        final boolean[] applied = new boolean[list.size()];
+
+        classReader.accept(new ClassVisitor(ASM5, cw)
+        {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+            {
+                MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+                for (int i = 0; i < applied.length; i++)
+                {
+                    DelegatePatch patch = (DelegatePatch) list.get(i);
+                    if (!applied[i] && patch.method.equals(name))
+                    {
+                        TTCorePlugin.logger.info("Transforming Class [" + className + "], Method [" + patch.method.getName() + "]");
+                        applied[i] = true;
+                        return new BodyReplacer(mv, patch, access, desc);
+                    }
+                }
+                return mv;
+            }
+        }, 0);
+
         return cw.toByteArray();
     }
 }
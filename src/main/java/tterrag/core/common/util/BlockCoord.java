@@ -1,7 +1,6 @@
 package tterrag.core.common.util;
 
 import lombok.AllArgsConstructor;
-import lombok.EqualsAndHashCode;
 import net.minecraft.block.Block;
 import net.minecraft.entity.Entity;
 import net.minecraft.nbt.NBTTagCompound;
@@ -10,9 +9,12 @@ import net.minecraft.util.MathHelper;
 import net.minecraft.world.World;
 
 @AllArgsConstructor
-@EqualsAndHashCode
 public class BlockCoord
 {
+    private static final int BITS_XZ = 26, BITS_Y = 12;
+    private static final int SHIFT_X = BITS_Y + BITS_XZ, SHIFT_Y = BITS_XZ;
+    private static final long MASK_XZ = (1L << BITS_XZ) - 1, MASK_Y = (1L << BITS_Y) - 1;
+
     public int x, y, z;
 
     public BlockCoord(Entity e)
@@ -30,6 +32,44 @@ public class BlockCoord
         this(other.x, other.y, other.z);
     }
 
+    /**
+     * Packs a position into a single long, for use as a key in {@link LongSet} or
+     * {@link LongObjectMap}. X and Z must be within +/-33554432 and Y within +/-2048, which covers
+     * any valid world position.
+     */
+    public static long toLong(int x, int y, int z)
+    {
+        return (x & MASK_XZ) << SHIFT_X | (y & MASK_Y) << SHIFT_Y | z & MASK_XZ;
+    }
+
+    public static int unpackX(long packed)
+    {
+        return (int) (packed >> SHIFT_X);
+    }
+
+    public static int unpackY(long packed)
+    {
+        return (int) (packed << (64 - SHIFT_Y - BITS_Y) >> (64 - BITS_Y));
+    }
+
+    public static int unpackZ(long packed)
+    {
+        return (int) (packed << (64 - BITS_XZ) >> (64 - BITS_XZ));
+    }
+
+    public static BlockCoord fromLong(long packed)
+    {
+        return new BlockCoord(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    /**
+     * @see #toLong(int, int, int)
+     */
+    public long toLong()
+    {
+        return toLong(x, y, z);
+    }
+
     public Block getBlock(World world)
     {
         return world.getBlock(x, y, z);
@@ -81,6 +121,29 @@ public class BlockCoord
         this.z = MathHelper.floor_double(z);
     }
 
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof BlockCoord))
+        {
+            return false;
+        }
+        BlockCoord other = (BlockCoord) obj;
+        return x == other.x && y == other.y && z == other.z;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        // spread the packed position, grid aligned coords collide heavily with a plain 31 * x + y
+        long hash = toLong() * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32);
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,217 @@
+package tterrag.core.common.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to objects, backed by an open-addressing hash table with linear
+ * probing. Meant to be used with {@link BlockCoord#toLong()} to map large amounts of positions
+ * without boxing the keys or creating an entry object per mapping.
+ * <p>
+ * Null values are not supported. Not thread safe.
+ */
+public class LongObjectMap<V>
+{
+    public interface Visitor<V>
+    {
+        void visit(long key, V value);
+    }
+
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    // a null value marks a free slot, key 0 is stored in the table like any other
+    private long[] keys;
+    private Object[] values;
+
+    private int size;
+    private int mask;
+    private int shift;
+    private int threshold;
+
+    public LongObjectMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expected
+     *            The amount of mappings this map should be able to hold without growing.
+     */
+    public LongObjectMap(int expected)
+    {
+        allocate(LongSet.capacityFor(expected));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        for (int i = slot(key);; i = (i + 1) & mask)
+        {
+            Object v = values[i];
+            if (v == null)
+            {
+                return null;
+            }
+            if (keys[i] == key)
+            {
+                return (V) v;
+            }
+        }
+    }
+
+    /**
+     * @return The previous value mapped to the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("LongObjectMap does not support null values");
+        }
+
+        int i = slot(key);
+        for (Object v; (v = values[i]) != null; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                values[i] = value;
+                return (V) v;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+        {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return The value that was mapped to the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        for (int i = slot(key);; i = (i + 1) & mask)
+        {
+            Object v = values[i];
+            if (v == null)
+            {
+                return null;
+            }
+            if (keys[i] == key)
+            {
+                shiftKeys(i);
+                size--;
+                return (V) v;
+            }
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i] != null)
+            {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public long[] keys()
+    {
+        long[] ret = new long[size];
+        int j = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (values[i] != null)
+            {
+                ret[j++] = keys[i];
+            }
+        }
+        return ret;
+    }
+
+    private int slot(long key)
+    {
+        return (int) ((key * PHI) >>> shift);
+    }
+
+    /**
+     * Closes the gap at {@code pos} by moving back any following entries that probed past it.
+     */
+    private void shiftKeys(int pos)
+    {
+        int last = pos;
+        for (int i = (pos + 1) & mask;; i = (i + 1) & mask)
+        {
+            Object v = values[i];
+            if (v == null)
+            {
+                break;
+            }
+            int home = slot(keys[i]);
+            // move the entry back if its home slot is not cyclically within (last, i]
+            if (last <= i ? (home <= last || home > i) : (home <= last && home > i))
+            {
+                keys[last] = keys[i];
+                values[last] = v;
+                last = i;
+            }
+        }
+        values[last] = null;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++)
+        {
+            if (oldValues[j] != null)
+            {
+                int i = slot(oldKeys[j]);
+                while (values[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        threshold = capacity / 4 * 3;
+    }
+}
@@ -0,0 +1,242 @@
+package tterrag.core.common.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs, backed by an open-addressing hash table with linear probing. Meant to
+ * be used with {@link BlockCoord#toLong()} to track large amounts of positions without an object
+ * per entry.
+ * <p>
+ * Not thread safe.
+ */
+public class LongSet
+{
+    public interface Visitor
+    {
+        void visit(long value);
+    }
+
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    // 0 marks a free slot, so it is tracked on its own
+    private long[] keys;
+    private boolean hasZero;
+
+    private int size;
+    private int mask;
+    private int shift;
+    private int threshold;
+
+    public LongSet()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expected
+     *            The amount of entries this set should be able to hold without growing.
+     */
+    public LongSet(int expected)
+    {
+        allocate(capacityFor(expected));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean contains(long value)
+    {
+        if (value == 0)
+        {
+            return hasZero;
+        }
+        for (int i = slot(value);; i = (i + 1) & mask)
+        {
+            long k = keys[i];
+            if (k == 0)
+            {
+                return false;
+            }
+            if (k == value)
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return True if the value was not already in the set.
+     */
+    public boolean add(long value)
+    {
+        if (value == 0)
+        {
+            if (hasZero)
+            {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int i = slot(value);
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask)
+        {
+            if (k == value)
+            {
+                return false;
+            }
+        }
+        keys[i] = value;
+        if (++size > threshold)
+        {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return True if the value was in the set.
+     */
+    public boolean remove(long value)
+    {
+        if (value == 0)
+        {
+            if (!hasZero)
+            {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+
+        for (int i = slot(value);; i = (i + 1) & mask)
+        {
+            long k = keys[i];
+            if (k == 0)
+            {
+                return false;
+            }
+            if (k == value)
+            {
+                shiftKeys(i);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    public void forEach(Visitor visitor)
+    {
+        if (hasZero)
+        {
+            visitor.visit(0);
+        }
+        for (long k : keys)
+        {
+            if (k != 0)
+            {
+                visitor.visit(k);
+            }
+        }
+    }
+
+    public long[] toArray()
+    {
+        long[] ret = new long[size];
+        int i = 0;
+        if (hasZero)
+        {
+            ret[i++] = 0;
+        }
+        for (long k : keys)
+        {
+            if (k != 0)
+            {
+                ret[i++] = k;
+            }
+        }
+        return ret;
+    }
+
+    private int slot(long value)
+    {
+        return (int) ((value * PHI) >>> shift);
+    }
+
+    /**
+     * Closes the gap at {@code pos} by moving back any following entries that probed past it.
+     */
+    private void shiftKeys(int pos)
+    {
+        int last = pos;
+        for (int i = (pos + 1) & mask;; i = (i + 1) & mask)
+        {
+            long k = keys[i];
+            if (k == 0)
+            {
+                break;
+            }
+            int home = slot(k);
+            // move k back if its home slot is not cyclically within (last, i]
+            if (last <= i ? (home <= last || home > i) : (home <= last && home > i))
+            {
+                keys[last] = k;
+                last = i;
+            }
+        }
+        keys[last] = 0;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] old = keys;
+        allocate(capacity);
+        for (long k : old)
+        {
+            if (k != 0)
+            {
+                int i = slot(k);
+                while (keys[i] != 0)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        threshold = capacity / 4 * 3;
+    }
+
+    static int capacityFor(int expected)
+    {
+        int capacity = 16;
+        while (capacity / 4 * 3 < expected)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
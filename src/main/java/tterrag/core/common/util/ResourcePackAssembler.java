@@ -155,6 +155,7 @@ public class ResourcePackAssembler
      */
     public ResourcePackAssembler assemble()
     {
+        long start = StartupProfiler.start();
         TTFileUtils.safeDeleteDirectory(dir);
         dir.mkdirs();
 
@@ -200,6 +201,7 @@ public class ResourcePackAssembler
             throw new RuntimeException(e);
         }
 
+        StartupProfiler.end(start, StartupProfiler.RESOURCE_PACK, modid, name);
         return this;
     }
 
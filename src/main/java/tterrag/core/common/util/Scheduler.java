@@ -1,14 +1,16 @@
 package tterrag.core.common.util;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import lombok.AllArgsConstructor;
 import tterrag.core.TTCore;
 import tterrag.core.common.Handlers.Handler;
 import tterrag.core.common.Handlers.Handler.HandlerType;
 import tterrag.core.common.Handlers.Handler.Inst;
+import tterrag.core.common.config.ConfigHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.TickEvent;
 import cpw.mods.fml.common.gameevent.TickEvent.ClientTickEvent;
@@ -19,30 +21,177 @@ import cpw.mods.fml.relauncher.SideOnly;
 
 /**
  * Convenience helper to schedule events to happen in the future.
+ * <p>
+ * Tasks are kept in a {@link TimingWheel} per side, keyed on the tick they are due, so each tick
+ * only touches the tasks that are due on it.
+ * <p>
+ * Scheduling is safe from any thread. Calls made off the tick thread of the given side are handed
+ * over through a lock-free inbox which is drained at the end of the next tick.
+ * <p>
+ * The time and amount of tasks run per tick can be limited in the config. Tasks that do not fit
+ * are deferred to the following tick, {@link Priority#CRITICAL} tasks are never deferred.
+ * <p>
+ * Tasks can repeat, see {@link #scheduleRepeating(int, int, Runnable, Side, Priority)}, and can be
+ * cancelled through the {@link Task} handle returned when scheduling them.
+ * <p>
+ * Each side keeps {@link SchedulerMetrics}, which can be viewed with {@code /schedulerstats}.
  */
 @Handler(value = HandlerType.FML, getInstFrom = Inst.METHOD)
 public class Scheduler
 {
-    @AllArgsConstructor
-    private static final class Task
+    /**
+     * The order in which due tasks are run, and whether they may be deferred when the tick budget
+     * is used up.
+     */
+    public enum Priority
+    {
+        /**
+         * Always runs on the tick it is due, regardless of the tick budget.
+         */
+        CRITICAL,
+
+        /**
+         * The default. Runs before {@link #LOW} tasks, may be deferred.
+         */
+        NORMAL,
+
+        /**
+         * Runs last, and is the first to be deferred.
+         */
+        LOW
+    }
+
+    /**
+     * A handle to a scheduled task, which can be used to cancel it.
+     */
+    public static final class Task extends TimingWheel.Entry
     {
-        private int delay;
-        private Runnable toRun;
-        private Side side;
+        private final SideQueue queue;
+        private final Runnable toRun;
+        private final int delay;
+        private final int period;
+        private final Priority priority;
 
-        private boolean run()
+        /**
+         * The tick this task was added to the wheel on.
+         */
+        private long queuedTick;
+
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        private Task(SideQueue queue, Runnable toRun, int delay, int period, Priority priority)
+        {
+            this.queue = queue;
+            this.toRun = toRun;
+            this.delay = Math.max(delay, 0);
+            this.period = period;
+            this.priority = priority;
+        }
+
+        /**
+         * Stops this task from running again. If called from the tick thread of the task's side,
+         * it is removed from the queue immediately, otherwise it is removed at the end of the next
+         * tick.
+         */
+        public void cancel()
         {
-            if (delay <= 0)
+            if (cancelled || done)
+            {
+                return;
+            }
+            cancelled = true;
+            if (Thread.currentThread() == queue.tickThread)
+            {
+                queue.wheel.remove(this);
+            }
+            else
             {
-                toRun.run();
-                return true;
+                queue.cancelled.offer(this);
             }
-            delay--;
-            return false;
+        }
+
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        /**
+         * @return True if this task will not run again, because it was cancelled or it was not
+         *         repeating and has run.
+         */
+        public boolean isDone()
+        {
+            return cancelled || done;
+        }
+
+        public boolean isRepeating()
+        {
+            return period > 0;
         }
     }
 
-    private final List<Task> tasks = new ArrayList<Task>();
+    private static final class SideQueue
+    {
+        private final TimingWheel wheel = new TimingWheel();
+        private final Queue<Task> inbox = new ConcurrentLinkedQueue<Task>();
+        private final Queue<Task> cancelled = new ConcurrentLinkedQueue<Task>();
+        private final SchedulerMetrics metrics = new SchedulerMetrics();
+
+        /**
+         * Tasks which are due, indexed by {@link Priority#ordinal()}. Anything left in here at the
+         * end of a tick went over budget.
+         */
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<Task>[] ready = new ArrayDeque[Priority.values().length];
+
+        private SideQueue()
+        {
+            for (int i = 0; i < ready.length; i++)
+            {
+                ready[i] = new ArrayDeque<Task>();
+            }
+        }
+
+        /**
+         * The thread that last ticked this side. Only this thread may touch the wheel.
+         */
+        private volatile Thread tickThread;
+
+        private void add(Task task)
+        {
+            // a delay of 0 runs on the next tick
+            task.queuedTick = wheel.currentTick();
+            task.due = task.queuedTick + task.delay + 1;
+            wheel.add(task);
+        }
+
+        private void drainInbox()
+        {
+            Task task;
+            while ((task = inbox.poll()) != null)
+            {
+                if (!task.cancelled)
+                {
+                    add(task);
+                }
+            }
+            while ((task = cancelled.poll()) != null)
+            {
+                wheel.remove(task);
+            }
+        }
+    }
+
+    private final Map<Side, SideQueue> queues = new EnumMap<Side, SideQueue>(Side.class);
+
+    public Scheduler()
+    {
+        for (Side side : Side.values())
+        {
+            queues.put(side, new SideQueue());
+        }
+    }
 
     /**
      * Schedules a task to be called later
@@ -77,10 +226,124 @@ public class Scheduler
      *            Note: passing in {@link Side#CLIENT} on a dedicated server
      *            will work, but your task will never be called. Please avoid
      *            doing this to save processing.
+     *            <p>
+     *            This may be called from any thread. If it is not called
+     *            from the tick thread of this side, the task is queued
+     *            when the current (or next) tick ends, and the delay
+     *            counts from there.
      */
     public void schedule(int delay, Runnable task, Side side)
     {
-        tasks.add(new Task(delay, task, side));
+        schedule(delay, task, side, Priority.NORMAL);
+    }
+
+    /**
+     * Schedules a task to be called later
+     * 
+     * @param delay
+     *            The amount of ticks to delay the call
+     * @param task
+     *            The {@link Runnable} to be run when the delay is up
+     * @param side
+     *            The side to schedule the task on.
+     * @param priority
+     *            The {@link Priority} of the task. Use {@link Priority#CRITICAL}
+     *            sparingly, as it bypasses the tick budget.
+     * @return A {@link Task} handle which can be used to cancel the task.
+     * 
+     * @see {@link #schedule(int, Runnable, Side)} for more details.
+     */
+    public Task schedule(int delay, Runnable task, Side side, Priority priority)
+    {
+        return schedule(delay, 0, task, side, priority);
+    }
+
+    /**
+     * Schedules a task to be called every {@code period} ticks, on the server side.
+     * 
+     * @see {@link #scheduleRepeating(int, int, Runnable, Side, Priority)} for more details.
+     */
+    public Task scheduleRepeating(int initialDelay, int period, Runnable task)
+    {
+        return scheduleRepeating(initialDelay, period, task, Side.SERVER);
+    }
+
+    /**
+     * Schedules a task to be called every {@code period} ticks.
+     * 
+     * @see {@link #scheduleRepeating(int, int, Runnable, Side, Priority)} for more details.
+     */
+    public Task scheduleRepeating(int initialDelay, int period, Runnable task, Side side)
+    {
+        return scheduleRepeating(initialDelay, period, task, side, Priority.NORMAL);
+    }
+
+    /**
+     * Schedules a task to be called every {@code period} ticks, until it is cancelled.
+     * <p>
+     * The same queue entry is reused for every run, so there is no need to reschedule the task
+     * from within itself.
+     * 
+     * @param initialDelay
+     *            The amount of ticks to delay the first call, as in
+     *            {@link #schedule(int, Runnable, Side)}
+     * @param period
+     *            The amount of ticks between calls, must be positive
+     * @param task
+     *            The {@link Runnable} to be run
+     * @param side
+     *            The side to schedule the task on.
+     * @param priority
+     *            The {@link Priority} of the task.
+     * @return A {@link Task} handle, call {@link Task#cancel()} to stop the
+     *         task.
+     */
+    public Task scheduleRepeating(int initialDelay, int period, Runnable task, Side side, Priority priority)
+    {
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("Period must be positive, was " + period);
+        }
+        return schedule(initialDelay, period, task, side, priority);
+    }
+
+    private Task schedule(int delay, int period, Runnable task, Side side, Priority priority)
+    {
+        SideQueue queue = queues.get(side);
+        Task t = new Task(queue, task, delay, period, priority);
+        queue.metrics.onScheduled();
+        if (Thread.currentThread() == queue.tickThread)
+        {
+            queue.add(t);
+        }
+        else
+        {
+            queue.inbox.offer(t);
+        }
+        return t;
+    }
+
+    /**
+     * @return The {@link SchedulerMetrics} of the given side.
+     */
+    public SchedulerMetrics getMetrics(Side side)
+    {
+        return queues.get(side).metrics;
+    }
+
+    /**
+     * Counts all tasks waiting to be run on the given side. This is an estimate if called from
+     * outside of the tick thread.
+     */
+    public int getQueueDepth(Side side)
+    {
+        SideQueue queue = queues.get(side);
+        int ret = queue.wheel.size() + queue.inbox.size();
+        for (ArrayDeque<Task> tasks : queue.ready)
+        {
+            ret += tasks.size();
+        }
+        return ret;
     }
 
     /**
@@ -123,14 +386,79 @@ public class Scheduler
 
     private void runTasks(Side side)
     {
-        Iterator<Task> iter = tasks.iterator();
-        while (iter.hasNext())
+        SideQueue queue = queues.get(side);
+        if (queue.tickThread != Thread.currentThread())
         {
-            Task next = iter.next();
-            if (next.side == side && next.run())
+            queue.tickThread = Thread.currentThread();
+        }
+        queue.drainInbox();
+
+        Task next = (Task) queue.wheel.advance();
+        while (next != null)
+        {
+            Task task = next;
+            next = (Task) task.next;
+            task.next = null;
+            queue.ready[task.priority.ordinal()].add(task);
+        }
+
+        ArrayDeque<Task> critical = queue.ready[Priority.CRITICAL.ordinal()];
+        while (!critical.isEmpty())
+        {
+            run(queue, critical.poll());
+        }
+
+        long budget = ConfigHandler.schedulerTickBudget * 1000L;
+        int maxTasks = ConfigHandler.schedulerMaxTasksPerTick;
+        long start = budget > 0 ? System.nanoTime() : 0;
+        int ran = 0;
+
+        for (int i = Priority.NORMAL.ordinal(); i < queue.ready.length; i++)
+        {
+            ArrayDeque<Task> tasks = queue.ready[i];
+            while (!tasks.isEmpty())
+            {
+                if ((maxTasks > 0 && ran >= maxTasks) || (budget > 0 && System.nanoTime() - start >= budget))
+                {
+                    // out of budget, the rest waits for the next tick
+                    for (int j = i; j < queue.ready.length; j++)
+                    {
+                        queue.metrics.onDeferred(queue.ready[j].size());
+                    }
+                    return;
+                }
+                run(queue, tasks.poll());
+                ran++;
+            }
+        }
+    }
+
+    private void run(SideQueue queue, Task task)
+    {
+        if (task.cancelled)
+        {
+            return;
+        }
+
+        boolean profile = ConfigHandler.schedulerProfiling;
+        long start = profile ? System.nanoTime() : 0;
+        task.toRun.run();
+        long nanos = profile ? System.nanoTime() - start : 0;
+
+        queue.metrics.onRun(task.toRun.getClass(), task.due - task.queuedTick, queue.wheel.currentTick() - task.queuedTick, nanos);
+
+        if (task.period > 0)
+        {
+            if (!task.cancelled)
             {
-                iter.remove();
+                task.queuedTick = queue.wheel.currentTick();
+                task.due = task.queuedTick + task.period;
+                queue.wheel.add(task);
             }
         }
+        else
+        {
+            task.done = true;
+        }
     }
 }
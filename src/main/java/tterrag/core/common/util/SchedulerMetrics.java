@@ -0,0 +1,198 @@
+package tterrag.core.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tterrag.core.common.config.ConfigHandler;
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.common.ModContainer;
+
+/**
+ * Counters for one side of a {@link Scheduler}.
+ * <p>
+ * The run time of each task is only measured when {@code schedulerProfiling} is enabled in the
+ * config, everything else is always counted.
+ * <p>
+ * Counted on the thread the scheduler runs on, but read and reset from whichever thread runs the
+ * stats command, so all counters are atomic.
+ */
+public class SchedulerMetrics
+{
+    /**
+     * Cost of all tasks scheduled with one {@link Runnable} class.
+     */
+    public static class TaskStats
+    {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        public long getRuns()
+        {
+            return runs.get();
+        }
+
+        public long getNanos()
+        {
+            return nanos.get();
+        }
+    }
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong run = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong requestedTicks = new AtomicLong();
+    private final AtomicLong waitedTicks = new AtomicLong();
+
+    private final Map<Class<?>, TaskStats> owners = new ConcurrentHashMap<Class<?>, TaskStats>();
+
+    public long getScheduled()
+    {
+        return scheduled.get();
+    }
+
+    public long getRun()
+    {
+        return run.get();
+    }
+
+    public long getDeferred()
+    {
+        return deferred.get();
+    }
+
+    public long getRequestedTicks()
+    {
+        return requestedTicks.get();
+    }
+
+    public long getWaitedTicks()
+    {
+        return waitedTicks.get();
+    }
+
+    void onScheduled()
+    {
+        scheduled.incrementAndGet();
+    }
+
+    void onDeferred(int count)
+    {
+        deferred.addAndGet(count);
+    }
+
+    void onRun(Class<?> owner, long requested, long waited, long nanos)
+    {
+        run.incrementAndGet();
+        requestedTicks.addAndGet(requested);
+        waitedTicks.addAndGet(waited);
+
+        if (ConfigHandler.schedulerProfiling)
+        {
+            TaskStats stats = owners.get(owner);
+            if (stats == null)
+            {
+                stats = new TaskStats();
+                owners.put(owner, stats);
+            }
+            stats.runs.incrementAndGet();
+            stats.nanos.addAndGet(nanos);
+        }
+    }
+
+    public void reset()
+    {
+        scheduled.set(0);
+        run.set(0);
+        deferred.set(0);
+        requestedTicks.set(0);
+        waitedTicks.set(0);
+        owners.clear();
+    }
+
+    /**
+     * Adds a human readable report of these metrics to the list.
+     *
+     * @param lines
+     *            The list to add the lines to.
+     * @param queueDepth
+     *            The current amount of tasks queued on this side.
+     * @param maxOwners
+     *            The max amount of owners to list, sorted by total run time. Negative for all.
+     */
+    public void report(List<String> lines, int queueDepth, int maxOwners)
+    {
+        long run = getRun();
+        lines.add(String.format("Scheduled: %d, Run: %d, Deferred: %d, Queued: %d", getScheduled(), run, getDeferred(), queueDepth));
+        if (run > 0)
+        {
+            lines.add(String.format("Avg. requested delay: %.2f ticks, Avg. time queued: %.2f ticks", (double) getRequestedTicks() / run, (double) getWaitedTicks() / run));
+        }
+
+        Map<String, TaskStats> byOwner = new HashMap<String, TaskStats>();
+        for (Entry<Class<?>, TaskStats> e : owners.entrySet())
+        {
+            String name = getOwnerName(e.getKey());
+            TaskStats total = byOwner.get(name);
+            if (total == null)
+            {
+                total = new TaskStats();
+                byOwner.put(name, total);
+            }
+            total.runs.addAndGet(e.getValue().getRuns());
+            total.nanos.addAndGet(e.getValue().getNanos());
+        }
+
+        List<Entry<String, TaskStats>> sorted = new ArrayList<Entry<String, TaskStats>>(byOwner.entrySet());
+        Collections.sort(sorted, new Comparator<Entry<String, TaskStats>>()
+        {
+            @Override
+            public int compare(Entry<String, TaskStats> o1, Entry<String, TaskStats> o2)
+            {
+                return Long.valueOf(o2.getValue().getNanos()).compareTo(o1.getValue().getNanos());
+            }
+        });
+
+        if (maxOwners >= 0 && sorted.size() > maxOwners)
+        {
+            sorted = sorted.subList(0, maxOwners);
+        }
+
+        for (Entry<String, TaskStats> e : sorted)
+        {
+            long runs = e.getValue().getRuns(), nanos = e.getValue().getNanos();
+            lines.add(String.format("  %s: %d runs, %.3f ms total, %.1f us avg", e.getKey(), runs, nanos / 1000000D, nanos / 1000D / runs));
+        }
+    }
+
+    /**
+     * Finds a readable owner for a task class. Anonymous and inner classes are attributed to their
+     * top level class, which is then prefixed with the modid of the mod that owns its package.
+     */
+    private static String getOwnerName(Class<?> clazz)
+    {
+        String name = clazz.getName();
+        int inner = name.indexOf('$');
+        if (inner != -1)
+        {
+            name = name.substring(0, inner);
+        }
+
+        int lastDot = name.lastIndexOf('.');
+        String pkg = lastDot == -1 ? "" : name.substring(0, lastDot);
+        for (ModContainer mod : Loader.instance().getActiveModList())
+        {
+            if (mod.getOwnedPackages().contains(pkg))
+            {
+                return "[" + mod.getModId() + "] " + name;
+            }
+        }
+        return "[unknown] " + name;
+    }
+}
@@ -0,0 +1,335 @@
+package tterrag.core.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import org.apache.commons.io.FileUtils;
+
+import tterrag.core.TTCore;
+import tterrag.core.common.json.JsonUtils;
+
+import com.google.common.base.Charsets;
+
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.common.ModContainer;
+
+/**
+ * Collects how long TTCore's own startup work takes, and which mod it was done for.
+ * <p>
+ * Spans are recorded until {@link #writeReport(File)} is called when loading completes, after
+ * which recording stops. Usage:
+ *
+ * <pre>
+ * long start = StartupProfiler.start();
+ * // ... work ...
+ * StartupProfiler.end(start, StartupProfiler.COMPAT, modid, className);
+ * </pre>
+ *
+ * Spans may be recorded from any thread.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class StartupProfiler
+{
+    public static final String HANDLERS = "handlers";
+    public static final String COMPAT = "compat";
+    public static final String TRANSFORMER = "transformer";
+    public static final String RESOURCE_PACK = "resourcePack";
+    public static final String CONFIG = "config";
+
+    private static final String UNKNOWN = "unknown";
+
+    private static class Span
+    {
+        private final String category, owner, detail;
+        private final double millis;
+
+        /**
+         * If this span was recorded inside another one, in which case it is not counted towards
+         * the totals.
+         */
+        private boolean nested;
+
+        // not part of the report
+        private final transient long thread, start, end;
+
+        private Span(String category, String owner, String detail, long start, long end)
+        {
+            this.category = category;
+            this.owner = owner;
+            this.detail = detail;
+            this.millis = (end - start) / 1000000D;
+            this.thread = Thread.currentThread().getId();
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class Phase
+    {
+        private final String graph, step;
+        private final boolean async;
+        private final double millis;
+
+        private Phase(String graph, String step, boolean async, long nanos)
+        {
+            this.graph = graph;
+            this.step = step;
+            this.async = async;
+            this.millis = nanos / 1000000D;
+        }
+    }
+
+    private static class ModTotal
+    {
+        private final String modid;
+        private double millis;
+        private Map<String, Double> categories = new LinkedHashMap<String, Double>();
+
+        private ModTotal(String modid)
+        {
+            this.modid = modid;
+        }
+    }
+
+    private static class Report
+    {
+        private double totalMillis;
+        private List<ModTotal> mods;
+        private List<Span> spans;
+        private List<Phase> phases;
+    }
+
+    private static final Comparator<Span> NESTING_ORDER = new Comparator<Span>()
+    {
+        @Override
+        public int compare(Span o1, Span o2)
+        {
+            if (o1.thread != o2.thread)
+            {
+                return o1.thread < o2.thread ? -1 : 1;
+            }
+            if (o1.start != o2.start)
+            {
+                return o1.start < o2.start ? -1 : 1;
+            }
+            return o1.end == o2.end ? 0 : o1.end > o2.end ? -1 : 1;
+        }
+    };
+
+    private static final Comparator<Span> SPAN_ORDER = new Comparator<Span>()
+    {
+        @Override
+        public int compare(Span o1, Span o2)
+        {
+            return Double.compare(o2.millis, o1.millis);
+        }
+    };
+
+    private static final Comparator<ModTotal> MOD_ORDER = new Comparator<ModTotal>()
+    {
+        @Override
+        public int compare(ModTotal o1, ModTotal o2)
+        {
+            return Double.compare(o2.millis, o1.millis);
+        }
+    };
+
+    private static volatile boolean enabled = true;
+
+    private static final Queue<Span> spans = new ConcurrentLinkedQueue<Span>();
+    private static final Queue<Phase> phases = new ConcurrentLinkedQueue<Phase>();
+
+    /**
+     * @return If spans are still being recorded.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return The start time of a span, to be passed to
+     *         {@link #end(long, String, String, String)}.
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span which began at {@code start}.
+     *
+     * @param category
+     *            The TTCore subsystem which did the work, e.g. {@link #COMPAT}.
+     * @param owner
+     *            The modid of the mod the work was done for. Null is recorded as unknown.
+     * @param detail
+     *            What exactly was done, e.g. a class name.
+     */
+    public static void end(long start, String category, String owner, String detail)
+    {
+        if (enabled)
+        {
+            spans.add(new Span(category, owner == null ? UNKNOWN : owner, detail, start, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Records the time of one step of a {@link StartupTaskGraph}. These are listed separately, as
+     * they contain the spans of the work done inside them.
+     */
+    static void recordPhase(String graph, String step, boolean async, long nanos)
+    {
+        if (enabled)
+        {
+            phases.add(new Phase(graph, step, async, nanos));
+        }
+    }
+
+    /**
+     * @return The modid of the mod owning the package of the given class, or null if none does.
+     */
+    public static String getOwner(String className)
+    {
+        int lastDot = className.lastIndexOf('.');
+        String pkg = lastDot == -1 ? "" : className.substring(0, lastDot);
+        for (ModContainer mod : Loader.instance().getActiveModList())
+        {
+            if (mod.getOwnedPackages().contains(pkg))
+            {
+                return mod.getModId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The modid of the mod currently receiving a lifecycle event, or null if there is none.
+     */
+    public static String getActiveMod()
+    {
+        ModContainer mod = Loader.instance().activeModContainer();
+        return mod == null ? null : mod.getModId();
+    }
+
+    /**
+     * Stops recording and writes all recorded spans, ranked by time taken, to
+     * {@code ttCore-startup.json} and {@code ttCore-startup.txt} in the given directory.
+     */
+    public static void writeReport(File dir)
+    {
+        enabled = false;
+
+        Report report = new Report();
+        report.spans = new ArrayList<Span>(spans);
+        report.phases = new ArrayList<Phase>(phases);
+        spans.clear();
+        phases.clear();
+
+        markNested(report.spans);
+
+        Map<String, ModTotal> byMod = new LinkedHashMap<String, ModTotal>();
+        for (Span span : report.spans)
+        {
+            if (span.nested)
+            {
+                continue;
+            }
+
+            ModTotal total = byMod.get(span.owner);
+            if (total == null)
+            {
+                total = new ModTotal(span.owner);
+                byMod.put(span.owner, total);
+            }
+            Double category = total.categories.get(span.category);
+            total.categories.put(span.category, (category == null ? 0 : category) + span.millis);
+            total.millis += span.millis;
+            report.totalMillis += span.millis;
+        }
+
+        report.mods = new ArrayList<ModTotal>(byMod.values());
+        Collections.sort(report.mods, MOD_ORDER);
+        Collections.sort(report.spans, SPAN_ORDER);
+
+        File json = new File(dir, "ttCore-startup.json");
+        File txt = new File(dir, "ttCore-startup.txt");
+        try
+        {
+            FileUtils.writeStringToFile(json, JsonUtils.gson.toJson(report), Charsets.UTF_8.name());
+            FileUtils.writeLines(txt, Charsets.UTF_8.name(), format(report));
+        }
+        catch (IOException e)
+        {
+            TTCore.logger.error("Could not write startup report to " + dir.getAbsolutePath());
+            e.printStackTrace();
+            return;
+        }
+
+        TTCore.logger.info(String.format("[Startup] TTCore startup work took %.1f ms, report written to %s", report.totalMillis, txt.getAbsolutePath()));
+    }
+
+    /**
+     * Marks every span which lies within an earlier span of the same thread, e.g. config
+     * processing done by a compat class.
+     */
+    private static void markNested(List<Span> list)
+    {
+        Collections.sort(list, NESTING_ORDER);
+        Span outer = null;
+        for (Span span : list)
+        {
+            if (outer != null && outer.thread == span.thread && span.end <= outer.end)
+            {
+                span.nested = true;
+            }
+            else
+            {
+                outer = span;
+            }
+        }
+    }
+
+    private static List<String> format(Report report)
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add(String.format("Total: %.1f ms", report.totalMillis));
+
+        lines.add("");
+        lines.add("By mod:");
+        for (ModTotal mod : report.mods)
+        {
+            lines.add(String.format("  %-24s %10.1f ms", mod.modid, mod.millis));
+            for (Map.Entry<String, Double> e : mod.categories.entrySet())
+            {
+                lines.add(String.format("    %-22s %10.1f ms", e.getKey(), e.getValue()));
+            }
+        }
+
+        lines.add("");
+        lines.add("Spans:");
+        for (Span span : report.spans)
+        {
+            lines.add(String.format("  %10.3f ms  %-12s [%s] %s%s", span.millis, span.category, span.owner, span.detail, span.nested ? " (nested)" : ""));
+        }
+
+        lines.add("");
+        lines.add("Lifecycle steps:");
+        for (Phase phase : report.phases)
+        {
+            lines.add(String.format("  %-24s %-24s %10.1f ms%s", phase.graph, phase.step, phase.millis, phase.async ? " (async)" : ""));
+        }
+        return lines;
+    }
+}
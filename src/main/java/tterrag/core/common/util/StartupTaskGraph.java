@@ -0,0 +1,259 @@
+package tterrag.core.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import lombok.Getter;
+import tterrag.core.TTCore;
+
+import com.google.common.base.Throwables;
+
+/**
+ * A small graph of startup steps. Each step names the steps it depends on, and is run once all of
+ * them have finished.
+ * <p>
+ * Steps added with {@link #addTask(String, Runnable, String...)} run on the thread calling
+ * {@link #run()}, and should be used for anything that touches registries or other game state.
+ * Steps added with {@link #addAsyncTask(String, Runnable, String...)} run on a small thread pool,
+ * and should only do I/O or pure computation, handing their results to a main thread step.
+ * <p>
+ * The time taken by each step is logged once the graph is done, and passed to the
+ * {@link StartupProfiler}.
+ */
+public class StartupTaskGraph
+{
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * A step of the graph, and how long it took once the graph has run.
+     */
+    public static class Step
+    {
+        @Getter
+        private final String name;
+        private final Runnable task;
+        @Getter
+        private final boolean async;
+        private final String[] dependencies;
+
+        @Getter
+        private long nanos;
+
+        private int waitingOn;
+        private List<Step> dependents = new ArrayList<Step>();
+        private Throwable error;
+
+        private Step(String name, Runnable task, boolean async, String[] dependencies)
+        {
+            this.name = name;
+            this.task = task;
+            this.async = async;
+            this.dependencies = dependencies;
+        }
+
+        private void execute()
+        {
+            long start = System.nanoTime();
+            try
+            {
+                task.run();
+            }
+            catch (Throwable t)
+            {
+                error = t;
+            }
+            nanos = System.nanoTime() - start;
+        }
+    }
+
+    @Getter
+    private final String name;
+
+    private final Map<String, Step> steps = new LinkedHashMap<String, Step>();
+
+    public StartupTaskGraph(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Adds a step which runs on the thread calling {@link #run()}.
+     */
+    public StartupTaskGraph addTask(String name, Runnable task, String... dependencies)
+    {
+        return add(new Step(name, task, false, dependencies));
+    }
+
+    /**
+     * Adds a step which runs on a worker thread. It must not touch any game state.
+     */
+    public StartupTaskGraph addAsyncTask(String name, Runnable task, String... dependencies)
+    {
+        return add(new Step(name, task, true, dependencies));
+    }
+
+    private StartupTaskGraph add(Step step)
+    {
+        if (steps.containsKey(step.name))
+        {
+            throw new IllegalArgumentException("Duplicate startup step " + step.name);
+        }
+        steps.put(step.name, step);
+        return this;
+    }
+
+    /**
+     * @return All steps of this graph, in the order they were added.
+     */
+    public List<Step> getSteps()
+    {
+        return Collections.unmodifiableList(new ArrayList<Step>(steps.values()));
+    }
+
+    /**
+     * Runs every step, blocking until all are done.
+     *
+     * @throws RuntimeException
+     *             If any step threw, once all running steps have finished. The exception of the
+     *             first failed step is rethrown as is, checked exceptions are wrapped. No new steps
+     *             are started after a failure.
+     */
+    public void run()
+    {
+        List<Step> mainReady = new ArrayList<Step>();
+        List<Step> asyncReady = new ArrayList<Step>();
+
+        for (Step step : steps.values())
+        {
+            step.waitingOn = step.dependencies.length;
+            for (String dep : step.dependencies)
+            {
+                Step parent = steps.get(dep);
+                if (parent == null)
+                {
+                    throw new IllegalArgumentException("Startup step " + step.name + " depends on unknown step " + dep);
+                }
+                parent.dependents.add(step);
+            }
+        }
+
+        for (Step step : steps.values())
+        {
+            if (step.waitingOn == 0)
+            {
+                (step.async ? asyncReady : mainReady).add(step);
+            }
+        }
+
+        ExecutorService executor = null;
+        final BlockingQueue<Step> finished = new LinkedBlockingQueue<Step>();
+        int running = 0, done = 0;
+        Step failed = null;
+        long start = System.nanoTime();
+
+        try
+        {
+            while (done < steps.size())
+            {
+                if (failed == null)
+                {
+                    for (final Step step : asyncReady)
+                    {
+                        if (executor == null)
+                        {
+                            executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+                        }
+                        executor.execute(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                step.execute();
+                                finished.add(step);
+                            }
+                        });
+                        running++;
+                    }
+                    asyncReady.clear();
+                }
+
+                // handle finished async steps first, so their dependents can be started
+                Step next = finished.poll();
+                if (next != null)
+                {
+                    running--;
+                }
+                else if (failed == null && !mainReady.isEmpty())
+                {
+                    next = mainReady.remove(0);
+                    next.execute();
+                }
+                else if (running > 0)
+                {
+                    next = finished.take();
+                    running--;
+                }
+                else if (failed != null)
+                {
+                    break;
+                }
+                else
+                {
+                    throw new IllegalStateException("Startup graph " + name + " has a dependency cycle");
+                }
+
+                done++;
+                if (next.error != null)
+                {
+                    failed = failed == null ? next : failed;
+                    continue;
+                }
+
+                for (Step dependent : next.dependents)
+                {
+                    if (--dependent.waitingOn == 0)
+                    {
+                        (dependent.async ? asyncReady : mainReady).add(dependent);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running startup graph " + name, e);
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdown();
+            }
+        }
+
+        logTimings(System.nanoTime() - start);
+
+        if (failed != null)
+        {
+            TTCore.logger.error("[Startup] Step " + failed.name + " of " + name + " failed");
+            throw Throwables.propagate(failed.error);
+        }
+    }
+
+    private void logTimings(long total)
+    {
+        TTCore.logger.info(String.format("[Startup] %s took %.1f ms:", name, total / 1000000D));
+        for (Step step : steps.values())
+        {
+            StartupProfiler.recordPhase(name, step.name, step.async, step.nanos);
+            TTCore.logger.info(String.format("[Startup]   %-24s %8.1f ms%s", step.name, step.nanos / 1000000D, step.async ? " (async)" : ""));
+        }
+    }
+}
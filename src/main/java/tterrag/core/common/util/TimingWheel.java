@@ -0,0 +1,207 @@
+package tterrag.core.common.util;
+
+/**
+ * A hierarchical timing wheel keyed on absolute tick number.
+ * <p>
+ * Entries due within the next 256 ticks live in a one-tick-per-slot wheel. Entries further out are
+ * kept in two coarser wheels (256 and 16384 ticks per slot) and are cascaded down as the wheel
+ * turns, so {@link #advance()} only ever touches the entries that are due on the new tick (plus
+ * the occasional cascade, which is O(1) amortized per entry). Anything more than 2<sup>20</sup>
+ * ticks away waits in an overflow list that is re-sorted once every 2<sup>20</sup> ticks.
+ * <p>
+ * Not thread safe, all calls must come from the thread that ticks the wheel.
+ */
+final class TimingWheel
+{
+    /**
+     * An intrusive node of the wheel. Subclass this to store data with the entry.
+     */
+    static class Entry
+    {
+        long due;
+
+        Entry prev, next;
+
+        boolean isQueued()
+        {
+            return prev != null;
+        }
+    }
+
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+
+    private static final int LEVEL0_SIZE = 1 << LEVEL0_BITS;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+
+    private static final int LEVEL0_MASK = LEVEL0_SIZE - 1;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+
+    private static final int LEVEL1_SHIFT = LEVEL0_BITS;
+    private static final int LEVEL2_SHIFT = LEVEL0_BITS + LEVEL_BITS;
+    private static final int OVERFLOW_SHIFT = LEVEL0_BITS + LEVEL_BITS * 2;
+
+    private final Entry[] level0 = createSlots(LEVEL0_SIZE);
+    private final Entry[] level1 = createSlots(LEVEL_SIZE);
+    private final Entry[] level2 = createSlots(LEVEL_SIZE);
+    private final Entry overflow = createSentinel();
+
+    private long current;
+    private int size;
+
+    /**
+     * @return The tick the wheel is currently on.
+     */
+    long currentTick()
+    {
+        return current;
+    }
+
+    /**
+     * @return The amount of entries waiting in the wheel.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds an entry to the wheel. Entries due at or before the current tick will be returned by
+     * the next call to {@link #advance()}.
+     */
+    void add(Entry e)
+    {
+        if (e.due <= current)
+        {
+            e.due = current + 1;
+        }
+        link(slotFor(e.due), e);
+        size++;
+    }
+
+    /**
+     * Removes an entry from the wheel in constant time.
+     *
+     * @return True if the entry was queued in this wheel.
+     */
+    boolean remove(Entry e)
+    {
+        if (!e.isQueued())
+        {
+            return false;
+        }
+        unlink(e);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward by one tick and detaches every entry due on that tick.
+     *
+     * @return The head of a singly linked list (through {@link Entry#next}) of the due entries, or
+     *         null if there are none.
+     */
+    Entry advance()
+    {
+        current++;
+
+        if ((current & LEVEL0_MASK) == 0)
+        {
+            int index1 = (int) (current >>> LEVEL1_SHIFT) & LEVEL_MASK;
+            if (index1 == 0)
+            {
+                int index2 = (int) (current >>> LEVEL2_SHIFT) & LEVEL_MASK;
+                if (index2 == 0)
+                {
+                    cascade(overflow);
+                }
+                cascade(level2[index2]);
+            }
+            cascade(level1[index1]);
+        }
+
+        Entry sentinel = level0[(int) current & LEVEL0_MASK];
+        Entry head = null, tail = null;
+        Entry e = sentinel.next;
+        while (e != sentinel)
+        {
+            Entry next = e.next;
+            unlink(e);
+            size--;
+            e.next = null;
+            if (tail == null)
+            {
+                head = e;
+            }
+            else
+            {
+                tail.next = e;
+            }
+            tail = e;
+            e = next;
+        }
+        return head;
+    }
+
+    private Entry slotFor(long due)
+    {
+        long delta = due - current;
+        if (delta < LEVEL0_SIZE)
+        {
+            return level0[(int) due & LEVEL0_MASK];
+        }
+        else if (delta < 1L << LEVEL2_SHIFT)
+        {
+            return level1[(int) (due >>> LEVEL1_SHIFT) & LEVEL_MASK];
+        }
+        else if (delta < 1L << OVERFLOW_SHIFT)
+        {
+            return level2[(int) (due >>> LEVEL2_SHIFT) & LEVEL_MASK];
+        }
+        return overflow;
+    }
+
+    private void cascade(Entry sentinel)
+    {
+        Entry e = sentinel.next;
+        sentinel.next = sentinel.prev = sentinel;
+        while (e != sentinel)
+        {
+            Entry next = e.next;
+            link(slotFor(e.due), e);
+            e = next;
+        }
+    }
+
+    private static void link(Entry sentinel, Entry e)
+    {
+        e.prev = sentinel.prev;
+        e.next = sentinel;
+        sentinel.prev.next = e;
+        sentinel.prev = e;
+    }
+
+    private static void unlink(Entry e)
+    {
+        e.prev.next = e.next;
+        e.next.prev = e.prev;
+        e.prev = e.next = null;
+    }
+
+    private static Entry[] createSlots(int count)
+    {
+        Entry[] ret = new Entry[count];
+        for (int i = 0; i < count; i++)
+        {
+            ret[i] = createSentinel();
+        }
+        return ret;
+    }
+
+    private static Entry createSentinel()
+    {
+        Entry e = new Entry();
+        e.next = e.prev = e;
+        return e;
+    }
+}
@@ -1,18 +1,121 @@
 package tterrag.core.common.util.blockiterators;
 
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import tterrag.core.common.util.BlockCoord;
 
 public abstract class AbstractBlockIterator implements Iterable<BlockCoord>, Iterator<BlockCoord>
 {
     protected BlockCoord base;
+    protected int curX, curY, curZ;
+
+    private static final Map<Class<?>, Boolean> overridesNext = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private BlockCoord cursor;
 
     protected AbstractBlockIterator(BlockCoord base)
     {
         this.base = base;
     }
 
+    /**
+     * Makes {@link #next()} return the same {@link BlockCoord} every time, updated to the next
+     * position. Do not hold on to the returned coords, copy them if you need to.
+     * 
+     * @return This iterator, for chaining.
+     */
+    public AbstractBlockIterator reuseCoord()
+    {
+        cursor = new BlockCoord(curX, curY, curZ);
+        return this;
+    }
+
+    /**
+     * Passes every remaining position to the consumer, without creating any {@link BlockCoord}
+     * objects.
+     */
+    public void forEach(IntTriConsumer consumer)
+    {
+        if (overridesNext())
+        {
+            while (hasNext())
+            {
+                BlockCoord next = next();
+                consumer.accept(next.x, next.y, next.z);
+            }
+            return;
+        }
+
+        while (hasNext())
+        {
+            consumer.accept(curX, curY, curZ);
+            advance();
+        }
+    }
+
+    @Override
+    public BlockCoord next()
+    {
+        BlockCoord ret;
+        if (cursor == null)
+        {
+            ret = new BlockCoord(curX, curY, curZ);
+        }
+        else
+        {
+            ret = cursor;
+            ret.x = curX;
+            ret.y = curY;
+            ret.z = curZ;
+        }
+        advance();
+        return ret;
+    }
+
+    /**
+     * Moves {@link #curX}, {@link #curY} and {@link #curZ} to the next position.
+     * <p>
+     * Subclasses must override either this or {@link #next()}. Iterators written before this
+     * method existed only override {@link #next()}, for them this takes the position from there.
+     */
+    protected void advance()
+    {
+        if (!overridesNext())
+        {
+            throw new IllegalStateException(getClass().getName() + " must override advance() or next()");
+        }
+        BlockCoord next = next();
+        curX = next.x;
+        curY = next.y;
+        curZ = next.z;
+    }
+
+    /**
+     * @return True if this iterator implements {@link #next()} itself instead of
+     *         {@link #advance()}, in which case it must only be walked through {@link #next()}.
+     */
+    protected final boolean overridesNext()
+    {
+        Class<?> c = getClass();
+        Boolean ret = overridesNext.get(c);
+        if (ret == null)
+        {
+            try
+            {
+                ret = c.getMethod("next").getDeclaringClass() != AbstractBlockIterator.class;
+            }
+            catch (NoSuchMethodException e)
+            {
+                // next() is public, this can't happen
+                ret = false;
+            }
+            overridesNext.put(c, ret);
+        }
+        return ret;
+    }
+
     @Override
     public void remove()
     {
@@ -0,0 +1,294 @@
+package tterrag.core.common.util.blockiterators;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import tterrag.core.common.util.BlockCoord;
+
+/**
+ * Base for iterators over shapes that can be described as a run of X positions for each (Y, Z)
+ * row, optionally with one hole in the middle of the run. Only positions inside the shape are
+ * ever visited.
+ * <p>
+ * Subclasses which use the row stepping of this class must call {@link #start()} at the end of
+ * their constructor.
+ * <p>
+ * {@link #forEachBlock(World, BlockConsumer, boolean)} can be used to read the blocks of the shape
+ * straight from the chunk sections, one 16x16x16 section at a time.
+ */
+public abstract class AbstractRowBlockIterator extends AbstractBlockIterator
+{
+    protected int minX, minY, minZ;
+    protected int maxX, maxY, maxZ;
+
+    /**
+     * The X bounds of the current row, inclusive.
+     */
+    protected int rowMinX, rowMaxX;
+
+    /**
+     * The X bounds of the hole in the current row, inclusive. Must lie strictly inside the row.
+     */
+    protected int holeMinX, holeMaxX;
+
+    protected AbstractRowBlockIterator(BlockCoord base, int minX, int maxX, int minY, int maxY, int minZ, int maxZ)
+    {
+        super(base);
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Moves to the first position of the shape.
+     */
+    protected final void start()
+    {
+        curY = minY;
+        curZ = minY > maxY ? maxZ + 1 : minZ;
+        if (curZ <= maxZ && !setupRow(curY, curZ))
+        {
+            nextRow();
+        }
+        curX = rowMinX;
+    }
+
+    /**
+     * Sets {@link #rowMinX} and {@link #rowMaxX} (and optionally {@link #holeMinX} and
+     * {@link #holeMaxX}) for the given row.
+     * 
+     * @return False if no position in this row is part of the shape.
+     */
+    protected abstract boolean computeRow(int y, int z);
+
+    private boolean setupRow(int y, int z)
+    {
+        holeMinX = Integer.MAX_VALUE;
+        holeMaxX = Integer.MAX_VALUE;
+        return computeRow(y, z);
+    }
+
+    private void nextRow()
+    {
+        do
+        {
+            if (++curY > maxY)
+            {
+                curY = minY;
+                if (++curZ > maxZ)
+                {
+                    return;
+                }
+            }
+        }
+        while (!setupRow(curY, curZ));
+
+        curX = rowMinX;
+    }
+
+    @Override
+    protected void advance()
+    {
+        if (++curX == holeMinX)
+        {
+            curX = holeMaxX + 1;
+        }
+        if (curX > rowMaxX)
+        {
+            nextRow();
+        }
+    }
+
+    @Override
+    public void forEach(IntTriConsumer consumer)
+    {
+        if (overridesNext())
+        {
+            super.forEach(consumer);
+            return;
+        }
+
+        while (hasNext())
+        {
+            for (int x = curX; x <= rowMaxX; x++)
+            {
+                if (x == holeMinX)
+                {
+                    x = holeMaxX;
+                    continue;
+                }
+                consumer.accept(x, curY, curZ);
+            }
+            nextRow();
+        }
+    }
+
+    /**
+     * Passes every block of the shape to the consumer, grouped by chunk section. Block IDs and
+     * metadata are read directly from the {@link ExtendedBlockStorage} arrays instead of going
+     * through {@link World#getBlock(int, int, int)} for each position.
+     * <p>
+     * This always visits the whole shape, regardless of how far this iterator has gotten, and
+     * exhausts it. Positions outside of the world height are not visited.
+     * 
+     * @param skipEmpty
+     *            If true, positions in empty sections are not visited at all. Otherwise they are
+     *            passed to the consumer as air.
+     */
+    public void forEachBlock(World world, BlockConsumer consumer, boolean skipEmpty)
+    {
+        int[] rows = buildRowTable();
+        int minSectionY = Math.max(minY, 0) >> 4;
+        int maxSectionY = Math.min(maxY, world.getHeight() - 1) >> 4;
+
+        for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++)
+        {
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++)
+            {
+                Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+                ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+
+                for (int sy = minSectionY; sy <= maxSectionY; sy++)
+                {
+                    ExtendedBlockStorage section = storage[sy];
+                    if (section == null || section.isEmpty())
+                    {
+                        if (!skipEmpty)
+                        {
+                            scanSection(rows, null, null, null, cx << 4, sy << 4, cz << 4, consumer);
+                        }
+                    }
+                    else
+                    {
+                        scanSection(rows, section.getBlockLSBArray(), section.getBlockMSBArray(), section.getMetadataArray(), cx << 4, sy << 4, cz << 4,
+                                consumer);
+                    }
+                }
+            }
+        }
+
+        curZ = maxZ + 1;
+    }
+
+    /**
+     * Computes the bounds of every row of the shape up front, so that rows can be looked up
+     * without touching the state of this iterator. The bounds of the current row are restored
+     * afterwards, so this can be called in the middle of an iteration.
+     * 
+     * @return Four ints per row (row min, row max, hole min, hole max), ordered by Z then Y.
+     */
+    int[] buildRowTable()
+    {
+        int savedRowMinX = rowMinX, savedRowMaxX = rowMaxX;
+        int savedHoleMinX = holeMinX, savedHoleMaxX = holeMaxX;
+
+        int height = maxY - minY + 1;
+        int[] rows = new int[Math.max(0, (maxZ - minZ + 1) * height * 4)];
+        for (int z = minZ; z <= maxZ; z++)
+        {
+            for (int y = minY; y <= maxY; y++)
+            {
+                int i = ((z - minZ) * height + y - minY) * 4;
+                if (setupRow(y, z))
+                {
+                    rows[i] = rowMinX;
+                    rows[i + 1] = rowMaxX;
+                }
+                else
+                {
+                    rows[i] = Integer.MAX_VALUE;
+                    rows[i + 1] = Integer.MIN_VALUE;
+                }
+                rows[i + 2] = holeMinX;
+                rows[i + 3] = holeMaxX;
+            }
+        }
+
+        rowMinX = savedRowMinX;
+        rowMaxX = savedRowMaxX;
+        holeMinX = savedHoleMinX;
+        holeMaxX = savedHoleMaxX;
+        return rows;
+    }
+
+    /**
+     * Passes every position of the shape inside the given section to the consumer. Only reads
+     * the bounds of this iterator, so it is safe to call from multiple threads at once.
+     * 
+     * @param rows
+     *            The table from {@link #buildRowTable()}.
+     * @param lsb
+     *            The block ID array of the section, or null if it is empty.
+     */
+    void scanSection(int[] rows, byte[] lsb, NibbleArray msb, NibbleArray meta, int baseX, int baseY, int baseZ, BlockConsumer consumer)
+    {
+        int height = maxY - minY + 1;
+        int x0 = Math.max(minX, baseX), x1 = Math.min(maxX, baseX + 15);
+        int y0 = Math.max(minY, baseY), y1 = Math.min(maxY, baseY + 15);
+        int z0 = Math.max(minZ, baseZ), z1 = Math.min(maxZ, baseZ + 15);
+
+        for (int z = z0; z <= z1; z++)
+        {
+            for (int y = y0; y <= y1; y++)
+            {
+                int i = ((z - minZ) * height + y - minY) * 4;
+                int rowMax = Math.min(x1, rows[i + 1]);
+                int holeMin = rows[i + 2], holeMax = rows[i + 3];
+
+                int lz = z & 15, ly = y & 15;
+                for (int x = Math.max(x0, rows[i]); x <= rowMax; x++)
+                {
+                    if (x >= holeMin && x <= holeMax)
+                    {
+                        x = holeMax;
+                        continue;
+                    }
+
+                    if (lsb == null)
+                    {
+                        consumer.accept(x, y, z, Blocks.air, 0);
+                        continue;
+                    }
+
+                    int lx = x & 15;
+                    int id = lsb[ly << 8 | lz << 4 | lx] & 255;
+                    if (msb != null)
+                    {
+                        id |= msb.get(lx, ly, lz) << 8;
+                    }
+                    consumer.accept(x, y, z, Block.getBlockById(id), meta.get(lx, ly, lz));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return curZ <= maxZ;
+    }
+
+    /**
+     * @return The largest integer whose square is no greater than {@code n}.
+     */
+    protected static int isqrt(int n)
+    {
+        int ret = (int) Math.sqrt(n);
+        // correct for floating point error on large values
+        while (ret * ret > n)
+        {
+            ret--;
+        }
+        while ((ret + 1) * (ret + 1) <= n)
+        {
+            ret++;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,11 @@
+package tterrag.core.common.util.blockiterators;
+
+import net.minecraft.block.Block;
+
+/**
+ * Receives blocks from {@link AbstractRowBlockIterator#forEachBlock(net.minecraft.world.World, BlockConsumer, boolean)}.
+ */
+public interface BlockConsumer
+{
+    void accept(int x, int y, int z, Block block, int meta);
+}
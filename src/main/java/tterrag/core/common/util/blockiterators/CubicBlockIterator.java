@@ -2,40 +2,65 @@ package tterrag.core.common.util.blockiterators;
 
 import tterrag.core.common.util.BlockCoord;
 
-public class CubicBlockIterator extends AbstractBlockIterator
+public class CubicBlockIterator extends AbstractRowBlockIterator
 {
     protected int radius;
-    protected int minX, minY, minZ;
-    protected int curX, curY, curZ;
-    protected int maxX, maxY, maxZ;
 
     public CubicBlockIterator(BlockCoord base, int radius)
     {
-        super(base);
+        super(base, base.x - radius, base.x + radius, base.y - radius, base.y + radius, base.z - radius, base.z + radius);
         this.radius = radius;
 
-        curX = minX = base.x - radius;
-        curY = minY = base.y - radius;
-        curZ = minZ = base.z - radius;
+        curX = minX;
+        curY = minY;
+        curZ = minZ;
+    }
 
-        maxX = base.x + radius;
-        maxY = base.y + radius;
-        maxZ = base.z + radius;
+    @Override
+    protected boolean computeRow(int y, int z)
+    {
+        rowMinX = minX;
+        rowMaxX = maxX;
+        return true;
     }
 
     @Override
-    public BlockCoord next()
+    protected void advance()
     {
-        BlockCoord ret = new BlockCoord(curX, curY, curZ);
         curX = curX == maxX ? minX : curX + 1;
         curY = curX == minX ? curY == maxY ? minY : curY + 1 : curY;
         curZ = curY == minY && curX == minX ? curZ + 1 : curZ;
-        return ret;
     }
 
     @Override
-    public boolean hasNext()
+    public void forEach(IntTriConsumer consumer)
     {
-        return curZ <= maxZ;
+        if (overridesNext())
+        {
+            super.forEach(consumer);
+            return;
+        }
+
+        if (!hasNext())
+        {
+            return;
+        }
+
+        // start from the current position, in case next() has already been called
+        int x = curX, y = curY;
+        for (int z = curZ; z <= maxZ; z++, y = minY)
+        {
+            for (; y <= maxY; y++, x = minX)
+            {
+                for (; x <= maxX; x++)
+                {
+                    consumer.accept(x, y, z);
+                }
+            }
+        }
+
+        curX = minX;
+        curY = minY;
+        curZ = maxZ + 1;
     }
 }
@@ -0,0 +1,40 @@
+package tterrag.core.common.util.blockiterators;
+
+import tterrag.core.common.util.BlockCoord;
+
+/**
+ * Iterates over a vertical cylinder. The base is the center of the bottom layer, and each layer
+ * contains every block with {@code dx * dx + dz * dz <= radius * radius}.
+ */
+public class CylindricalBlockIterator extends AbstractRowBlockIterator
+{
+    protected int radius;
+    protected int radiusSq;
+    protected int height;
+
+    public CylindricalBlockIterator(BlockCoord base, int radius, int height)
+    {
+        super(base, base.x - radius, base.x + radius, base.y, base.y + height - 1, base.z - radius, base.z + radius);
+        this.radius = radius;
+        this.radiusSq = radius * radius;
+        this.height = height;
+
+        start();
+    }
+
+    @Override
+    protected boolean computeRow(int y, int z)
+    {
+        int dz = z - base.z;
+        int rest = radiusSq - dz * dz;
+        if (rest < 0)
+        {
+            return false;
+        }
+
+        int halfWidth = isqrt(rest);
+        rowMinX = base.x - halfWidth;
+        rowMaxX = base.x + halfWidth;
+        return true;
+    }
+}
@@ -0,0 +1,10 @@
+package tterrag.core.common.util.blockiterators;
+
+/**
+ * Receives block positions from {@link AbstractBlockIterator#forEach(IntTriConsumer)} without a
+ * {@link tterrag.core.common.util.BlockCoord BlockCoord} being created for each one.
+ */
+public interface IntTriConsumer
+{
+    void accept(int x, int y, int z);
+}
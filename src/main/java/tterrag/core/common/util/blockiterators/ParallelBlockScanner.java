@@ -0,0 +1,206 @@
+package tterrag.core.common.util.blockiterators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import net.minecraft.block.Block;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Runs large read-only scans of a shape on multiple threads.
+ * <p>
+ * The shape is split along chunk boundaries into one job per chunk column. The sections each job
+ * needs are copied on the calling thread, so the worker threads never touch the world. Each job
+ * collects into its own result, and the results are merged back on the calling thread.
+ * <p>
+ * Only the scanning itself runs in parallel. Copying the sections, up to 8 KB each, happens on the
+ * main thread before any job starts, so it is part of the cost of a scan on that thread.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ParallelBlockScanner
+{
+    /**
+     * Collects the results of a scan. {@link #accept(Object, int, int, int, Block, int)} is called
+     * from worker threads, each with its own result object, so it must not touch the world or any
+     * other shared state.
+     */
+    public interface Collector<R>
+    {
+        R create();
+
+        void accept(R result, int x, int y, int z, Block block, int meta);
+
+        /**
+         * Combines two partial results. Always called on the thread that started the scan.
+         */
+        R merge(R first, R second);
+    }
+
+    private static final class SectionCopy
+    {
+        private final int y;
+        private final byte[] lsb;
+        private final NibbleArray msb, meta;
+
+        private SectionCopy(int y, ExtendedBlockStorage section)
+        {
+            this.y = y;
+            if (section == null || section.isEmpty())
+            {
+                lsb = null;
+                msb = meta = null;
+            }
+            else
+            {
+                lsb = section.getBlockLSBArray().clone();
+                msb = copy(section.getBlockMSBArray());
+                meta = copy(section.getMetadataArray());
+            }
+        }
+
+        private static NibbleArray copy(NibbleArray arr)
+        {
+            return arr == null ? null : new NibbleArray(arr.data.clone(), 4);
+        }
+    }
+
+    private static ExecutorService pool;
+
+    private static synchronized ExecutorService getPool()
+    {
+        if (pool == null)
+        {
+            final AtomicInteger count = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "ttCore Block Scanner #" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Scans every block of the shape in parallel. Must be called from the thread that owns the
+     * world, which is blocked until the scan is done.
+     * <p>
+     * Like {@link AbstractRowBlockIterator#forEachBlock(World, BlockConsumer, boolean)}, this
+     * visits the whole shape and exhausts the iterator. Chunks which are not loaded are skipped, a
+     * scan never loads or generates chunks.
+     *
+     * @param skipEmpty
+     *            If true, positions in empty sections are not visited at all. Otherwise they are
+     *            passed to the collector as air.
+     * @return The merged result of all jobs.
+     */
+    public static <R> R scan(World world, final AbstractRowBlockIterator shape, final Collector<R> collector, boolean skipEmpty)
+    {
+        final int[] rows = shape.buildRowTable();
+        int minSectionY = Math.max(shape.minY, 0) >> 4;
+        int maxSectionY = Math.min(shape.maxY, world.getHeight() - 1) >> 4;
+
+        List<Future<R>> jobs = new ArrayList<Future<R>>();
+        for (int cz = shape.minZ >> 4; cz <= shape.maxZ >> 4; cz++)
+        {
+            for (int cx = shape.minX >> 4; cx <= shape.maxX >> 4; cx++)
+            {
+                if (!world.getChunkProvider().chunkExists(cx, cz))
+                {
+                    continue;
+                }
+
+                ExtendedBlockStorage[] storage = world.getChunkFromChunkCoords(cx, cz).getBlockStorageArray();
+                final List<SectionCopy> sections = new ArrayList<SectionCopy>();
+                for (int sy = minSectionY; sy <= maxSectionY; sy++)
+                {
+                    ExtendedBlockStorage section = storage[sy];
+                    if (!skipEmpty || (section != null && !section.isEmpty()))
+                    {
+                        sections.add(new SectionCopy(sy, section));
+                    }
+                }
+
+                if (sections.isEmpty())
+                {
+                    continue;
+                }
+
+                final int baseX = cx << 4, baseZ = cz << 4;
+                jobs.add(getPool().submit(new Callable<R>()
+                {
+                    @Override
+                    public R call()
+                    {
+                        final R result = collector.create();
+                        BlockConsumer consumer = new BlockConsumer()
+                        {
+                            @Override
+                            public void accept(int x, int y, int z, Block block, int meta)
+                            {
+                                collector.accept(result, x, y, z, block, meta);
+                            }
+                        };
+
+                        for (SectionCopy s : sections)
+                        {
+                            if (Thread.currentThread().isInterrupted())
+                            {
+                                // cancelled after another job failed
+                                return null;
+                            }
+                            shape.scanSection(rows, s.lsb, s.msb, s.meta, baseX, s.y << 4, baseZ, consumer);
+                        }
+                        return result;
+                    }
+                }));
+            }
+        }
+
+        R ret = collector.create();
+        try
+        {
+            for (Future<R> job : jobs)
+            {
+                ret = collector.merge(ret, job.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            cancel(jobs);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for block scan", e);
+        }
+        catch (ExecutionException e)
+        {
+            cancel(jobs);
+            throw new RuntimeException("Error in block scan", e.getCause());
+        }
+
+        shape.curZ = shape.maxZ + 1;
+        return ret;
+    }
+
+    private static void cancel(List<? extends Future<?>> jobs)
+    {
+        for (Future<?> job : jobs)
+        {
+            job.cancel(true);
+        }
+    }
+}
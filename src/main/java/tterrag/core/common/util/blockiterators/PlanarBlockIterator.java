@@ -35,30 +35,19 @@ public class PlanarBlockIterator extends CubicBlockIterator
         super(base, radius);
 
         this.orientation = orientation;
-    }
 
-    @Override
-    public BlockCoord next()
-    {
-        BlockCoord coord = new BlockCoord(curX, curY, curZ);
+        // flatten the cube onto the plane through base, the cubic iteration does the rest
         switch (orientation)
         {
         case EAST_WEST:
-            curY = curY == maxY ? minY : curY + 1;
-            curX = curY == minY ? curX + 1 : curX;
+            curZ = minZ = maxZ = base.z;
+            break;
         case NORTH_SOUTH:
-            curY = curY == maxY ? minY : curY + 1;
-            curZ = curY == minY ? curZ + 1 : curZ;
+            curX = minX = maxX = base.x;
+            break;
         case HORIZONTAL:
-            curX = curX == maxX ? minX : curX + 1;
-            curZ = curX == minX ? curZ + 1 : curZ;
+            curY = minY = maxY = base.y;
+            break;
         }
-        return coord;
-    }
-
-    @Override
-    public boolean hasNext()
-    {
-        return curX <= maxX && curY <= maxY && curZ <= maxZ;
     }
 }
@@ -0,0 +1,49 @@
+package tterrag.core.common.util.blockiterators;
+
+import tterrag.core.common.util.BlockCoord;
+
+/**
+ * A hollow {@link SphericalBlockIterator}. Iterates over every block whose squared distance from
+ * the base is greater than {@code (radius - thickness)^2} and no greater than {@code radius^2}.
+ */
+public class ShellBlockIterator extends SphericalBlockIterator
+{
+    protected int thickness;
+    protected int innerRadiusSq;
+
+    public ShellBlockIterator(BlockCoord base, int radius, int thickness)
+    {
+        super(base, radius, false);
+        this.thickness = thickness;
+
+        int inner = radius - thickness;
+        this.innerRadiusSq = inner < 0 ? -1 : inner * inner;
+
+        start();
+    }
+
+    @Override
+    protected boolean computeRow(int y, int z)
+    {
+        if (!super.computeRow(y, z))
+        {
+            return false;
+        }
+
+        int dy = y - base.y;
+        int dz = z - base.z;
+        int rest = innerRadiusSq - dy * dy - dz * dz;
+        if (rest >= 0)
+        {
+            int holeHalfWidth = isqrt(rest);
+            if (base.x - holeHalfWidth <= rowMinX)
+            {
+                // the whole row is inside the hole
+                return false;
+            }
+            holeMinX = base.x - holeHalfWidth;
+            holeMaxX = base.x + holeHalfWidth;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package tterrag.core.common.util.blockiterators;
+
+import tterrag.core.common.util.BlockCoord;
+
+/**
+ * Iterates over every block whose offset from the base satisfies
+ * {@code dx * dx + dy * dy + dz * dz <= radius * radius}.
+ */
+public class SphericalBlockIterator extends AbstractRowBlockIterator
+{
+    protected int radius;
+    protected int radiusSq;
+
+    public SphericalBlockIterator(BlockCoord base, int radius)
+    {
+        this(base, radius, true);
+    }
+
+    /**
+     * For subclasses which need to set up their own fields before calling {@link #start()}.
+     */
+    protected SphericalBlockIterator(BlockCoord base, int radius, boolean start)
+    {
+        super(base, base.x - radius, base.x + radius, base.y - radius, base.y + radius, base.z - radius, base.z + radius);
+        this.radius = radius;
+        this.radiusSq = radius * radius;
+
+        if (start)
+        {
+            start();
+        }
+    }
+
+    @Override
+    protected boolean computeRow(int y, int z)
+    {
+        int dy = y - base.y;
+        int dz = z - base.z;
+        int rest = radiusSq - dy * dy - dz * dz;
+        if (rest < 0)
+        {
+            return false;
+        }
+
+        int halfWidth = isqrt(rest);
+        rowMinX = base.x - halfWidth;
+        rowMaxX = base.x + halfWidth;
+        return true;
+    }
+}